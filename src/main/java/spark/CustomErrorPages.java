@@ -17,7 +17,10 @@
  */
 package spark;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +73,23 @@ public class CustomErrorPages {
         return customPage;
     }
 
+    /**
+     * Gets the error page for a given status code encoded in UTF-8, unless the custom error page is a route.
+     * The page is encoded once, when added. The returned array must not be modified.
+     * @param status
+     * @return the encoded error page or null if the custom error page is a route
+     */
+    public static byte[] getEncodedFor(int status) {
+        CustomErrorPages instance = CustomErrorPages.getInstance();
+
+        if (instance.customPages.get(status) instanceof Route) {
+            return null;
+        }
+
+        byte[] page = instance.encodedPages.get(status);
+        return (page != null) ? page : instance.getDefaultFor(status).getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
      * Returns the default error page for a given status code.
      * Guaranteed to never be null.
@@ -87,6 +107,8 @@ public class CustomErrorPages {
      * @param page
      */
     static void add(int status, String page) {
+        // encoded first, so the page is never served with the previous encoding
+        CustomErrorPages.getInstance().encodedPages.put(status, page.getBytes(StandardCharsets.UTF_8));
         CustomErrorPages.getInstance().customPages.put(status, page);
     }
 
@@ -97,18 +119,25 @@ public class CustomErrorPages {
      */
     static void add(int status, Route route) {
         CustomErrorPages.getInstance().customPages.put(status, route);
+        CustomErrorPages.getInstance().encodedPages.remove(status);
     }
 
     // Private stuff
 
-    private final HashMap<Integer, Object> customPages;
+    // read per request while pages can still be added, hence concurrent
+    private final Map<Integer, Object> customPages;
     private final HashMap<Integer, String> defaultPages;
+    private final Map<Integer, byte[]> encodedPages;
 
     private CustomErrorPages() {
-        customPages = new HashMap<>();
+        customPages = new ConcurrentHashMap<>();
         defaultPages = new HashMap<>();
         defaultPages.put(404, NOT_FOUND);
         defaultPages.put(500, INTERNAL_ERROR);
+
+        encodedPages = new ConcurrentHashMap<>();
+        encodedPages.put(404, NOT_FOUND.getBytes(StandardCharsets.UTF_8));
+        encodedPages.put(500, INTERNAL_ERROR.getBytes(StandardCharsets.UTF_8));
     }
 
     private static class SingletonHolder {
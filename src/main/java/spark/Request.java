@@ -16,8 +16,8 @@
  */
 package spark;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -27,16 +27,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
+import spark.embeddedserver.ManagedRequest;
+import spark.multipart.MultipartConfiguration;
+import spark.multipart.MultipartParts;
 import spark.routematch.RouteMatch;
-import spark.utils.IOUtils;
-import spark.utils.SparkUtils;
-import spark.utils.StringUtils;
-import spark.utils.urldecoding.UrlDecode;
 
 /**
  * Provides information about the HTTP request
@@ -49,6 +49,10 @@ public class Request {
 
     private static final String USER_AGENT = "user-agent";
 
+    // the max size of the body set by a route, checked by body() and bodyAsBytes() when running from a servlet
+    private static final String MAX_BODY_SIZE_ATTRIBUTE = "spark.maxBodySize";
+
+    private RouteMatch routeMatch;
     private Map<String, String> params;
     private List<String> splat;
     private QueryParamsMap queryMap;
@@ -119,12 +123,26 @@ public class Request {
     }
 
     protected void changeMatch(RouteMatch match) {
-        List<String> requestList = SparkUtils.convertRouteToList(match.getRequestURI());
-        List<String> matchedList = SparkUtils.convertRouteToList(match.getMatchUri());
-
+        this.routeMatch = match;
         this.matchedPath = match.getMatchUri();
-        params = getParams(requestList, matchedList);
-        splat = getSplat(requestList, matchedList);
+
+        // params and splat are taken from the match when first asked for
+        params = null;
+        splat = null;
+    }
+
+    private Map<String, String> routeParams() {
+        if (params == null) {
+            params = routeMatch.getParams();
+        }
+        return params;
+    }
+
+    private List<String> routeSplat() {
+        if (splat == null) {
+            splat = routeMatch.getSplat();
+        }
+        return splat;
     }
 
     /**
@@ -133,7 +151,7 @@ public class Request {
      * @return a map containing all route params
      */
     public Map<String, String> params() {
-        return Collections.unmodifiableMap(params);
+        return Collections.unmodifiableMap(routeParams());
     }
 
     /**
@@ -144,21 +162,68 @@ public class Request {
      * @return null if the given param is null or not found
      */
     public String params(String param) {
-        if (param == null) {
+        if (param == null || routeMatch == null) {
             return null;
         }
 
-        if (param.startsWith(":")) {
-            return params.get(param.toLowerCase()); // NOSONAR
-        } else {
-            return params.get(":" + param.toLowerCase()); // NOSONAR
+        // taken from the matched segment, without building the map of all params
+        return routeMatch.getParam(param);
+    }
+
+    /**
+     * Returns the value of the provided route pattern parameter as an int, e.g. declared as ':id{int}'. This is a
+     * convenience parser, the value is parsed again rather than taken from the matching of the route, with the same
+     * rules as the constraint, so it never fails for a constrained param.
+     *
+     * @param param the param
+     * @return the param value
+     * @throws IllegalArgumentException if the param is not found
+     * @throws NumberFormatException    if the value is not an int
+     */
+    public int paramAsInt(String param) {
+        return Integer.parseInt(requiredParam(param));
+    }
+
+    /**
+     * Returns the value of the provided route pattern parameter as a long, e.g. declared as ':id{long}'. This is a
+     * convenience parser, the value is parsed again rather than taken from the matching of the route, with the same
+     * rules as the constraint, so it never fails for a constrained param.
+     *
+     * @param param the param
+     * @return the param value
+     * @throws IllegalArgumentException if the param is not found
+     * @throws NumberFormatException    if the value is not a long
+     */
+    public long paramAsLong(String param) {
+        return Long.parseLong(requiredParam(param));
+    }
+
+    /**
+     * Returns the value of the provided route pattern parameter as an UUID, e.g. declared as ':id{uuid}'. This is a
+     * convenience parser, the value is parsed again rather than taken from the matching of the route.
+     *
+     * @param param the param
+     * @return the param value
+     * @throws IllegalArgumentException if the param is not found or the value is not an UUID
+     */
+    public UUID paramAsUUID(String param) {
+        return UUID.fromString(requiredParam(param));
+    }
+
+    private String requiredParam(String param) {
+        String value = params(param);
+
+        if (value == null) {
+            throw new IllegalArgumentException("Route param '" + param + "' not found");
         }
+        return value;
     }
 
     /**
      * @return an array containing the splat (wildcard) parameters
      */
     public String[] splat() {
+        List<String> splat = routeSplat();
         return splat.toArray(new String[splat.size()]);
     }
 
@@ -255,7 +320,7 @@ public class Request {
     public String body() {
 
         if (body == null) {
-            body = StringUtils.toString(bodyAsBytes(), servletRequest.getCharacterEncoding());
+            body = RequestBodies.decode(bodyAsBytes(), servletRequest.getCharacterEncoding());
         }
 
         return body;
@@ -270,12 +335,86 @@ public class Request {
 
     private void readBodyAsBytes() {
         try {
-            bodyAsBytes = IOUtils.toByteArray(servletRequest.getInputStream());
+            byte[] bytes = RequestBodies.read(servletRequest.getInputStream(), servletRequest.getContentLengthLong());
+            Object maxSize = servletRequest.getAttribute(MAX_BODY_SIZE_ATTRIBUTE);
+            if (maxSize instanceof Long && bytes.length > (Long) maxSize) {
+                throw new RequestBodyTooLargeException((Long) maxSize);
+            }
+            bodyAsBytes = bytes;
+        } catch (HaltException e) {
+            throw e;
         } catch (Exception e) {
             LOG.warn("Exception when reading body", e);
         }
     }
 
+    /**
+     * Reads a multipart/form-data body one part at a time, in the order the parts were sent, with the default
+     * limits, see {@link #parts(MultipartConfiguration)}.
+     *
+     * @return the parts
+     */
+    public MultipartParts parts() {
+        return parts(MultipartConfiguration.create());
+    }
+
+    /**
+     * Reads a multipart/form-data body one part at a time, in the order the parts were sent. Fields are kept in
+     * memory, files are written to temp files as they are read. The body is read from the connection, so it can be
+     * read once only, either as parts or as the body. The temp files not saved are deleted once the request has been
+     * handled, by the embedded server or, when running from a servlet, by the filter handling the routes.
+     *
+     * @param configuration the limits of the parts
+     * @return the parts
+     * @throws spark.multipart.MultipartException if the body is not multipart/form-data
+     */
+    public MultipartParts parts(MultipartConfiguration configuration) {
+        MultipartParts parts;
+        try {
+            parts = MultipartParts.of(servletRequest.getContentType(),
+                                      servletRequest.getInputStream(),
+                                      servletRequest.getCharacterEncoding(),
+                                      configuration);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ManagedRequest.closeWhenHandled(servletRequest, parts);
+        return parts;
+    }
+
+    /**
+     * Limits the size of the request body, e.g. in a before filter for the routes that accept smaller bodies than
+     * the rest of the service. The limit can only be lowered. The request is halted with 413 (Payload Too Large)
+     * right away if its Content-Length is larger, otherwise as soon as more of the body has been read.
+     * <p>
+     * The limit is applied by the embedded server, see {@link ManagedRequest}. When running from a servlet there is
+     * none: the Content-Length is checked right away and the body once it has been read by {@link #body()} or
+     * {@link #bodyAsBytes()}, but a body read from {@link #raw()} or as {@link #parts()} is not limited. The limits
+     * of the servlet container apply to it instead.
+     *
+     * @param bytes the max number of bytes of the body
+     * @throws RequestBodyTooLargeException if the body is larger
+     */
+    public void maxBodySize(long bytes) {
+        ManagedRequest managedRequest = ManagedRequest.of(servletRequest);
+        if (managedRequest != null) {
+            managedRequest.limitBody(bytes);
+            return;
+        }
+
+        Object maxSize = servletRequest.getAttribute(MAX_BODY_SIZE_ATTRIBUTE);
+        if (maxSize instanceof Long && (Long) maxSize <= bytes) {
+            return;
+        }
+        servletRequest.setAttribute(MAX_BODY_SIZE_ATTRIBUTE, bytes);
+
+        if (servletRequest.getContentLengthLong() > bytes
+                || (bodyAsBytes != null && bodyAsBytes.length > bytes)) {
+            throw new RequestBodyTooLargeException(bytes);
+        }
+    }
+
     /**
      * @return the length of request.body
      */
@@ -516,60 +655,6 @@ public class Request {
         return servletRequest.getProtocol();
     }
 
-    private static Map<String, String> getParams(List<String> request, List<String> matched) {
-        Map<String, String> params = new HashMap<>();
-
-        for (int i = 0; (i < request.size()) && (i < matched.size()); i++) {
-            String matchedPart = matched.get(i);
-
-            if (SparkUtils.isParam(matchedPart)) {
-
-                String decodedReq = UrlDecode.path(request.get(i));
-
-                LOG.debug("matchedPart: "
-                                  + matchedPart
-                                  + " = "
-                                  + decodedReq);
-
-                params.put(matchedPart.toLowerCase(), decodedReq);
-            }
-        }
-        return Collections.unmodifiableMap(params);
-    }
-
-    private static List<String> getSplat(List<String> request, List<String> matched) {
-        int nbrOfRequestParts = request.size();
-        int nbrOfMatchedParts = matched.size();
-
-        boolean sameLength = (nbrOfRequestParts == nbrOfMatchedParts);
-
-        List<String> splat = new ArrayList<>();
-
-        for (int i = 0; (i < nbrOfRequestParts) && (i < nbrOfMatchedParts); i++) {
-
-            String matchedPart = matched.get(i);
-
-            if (SparkUtils.isSplat(matchedPart)) {
-
-                StringBuilder splatParam = new StringBuilder(request.get(i));
-
-                if (!sameLength && (i == (nbrOfMatchedParts - 1))) {
-                    for (int j = i + 1; j < nbrOfRequestParts; j++) {
-                        splatParam.append("/");
-                        splatParam.append(request.get(j));
-                    }
-                }
-                try {
-                    String decodedSplat = URLDecoder.decode(splatParam.toString(), "UTF-8");
-                    splat.add(decodedSplat);
-                } catch (UnsupportedEncodingException e) {
-                }
-            }
-        }
-
-        return Collections.unmodifiableList(splat);
-    }
-
     /**
      * Set the session validity
      *
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and decodes request bodies. A body with a known Content-Length of at most {@value #MAX_PRESIZE} bytes is read
+ * straight into an array of that length. Other bodies are read in chunks, which are copied once into an array of the
+ * exact length. The chunks are not pooled, so the bytes of a body are never left in a buffer used by another request.
+ *
+ * @author Per Wendel
+ */
+final class RequestBodies {
+
+    static final int CHUNK_SIZE = 8192;
+
+    // a larger Content-Length is not trusted to allocate the whole array before the bytes arrive, as for the
+    // bodies buffered by the embedded server
+    static final int MAX_PRESIZE = CHUNK_SIZE;
+
+    private RequestBodies() {
+    }
+
+    /**
+     * Reads a body
+     *
+     * @param input         the body
+     * @param contentLength the Content-Length of the body, -1 if unknown
+     * @return the bytes of the body
+     * @throws IOException in case of IO error.
+     */
+    static byte[] read(InputStream input, long contentLength) throws IOException {
+        if (contentLength >= 0 && contentLength <= MAX_PRESIZE) {
+            return read(input, (int) contentLength);
+        }
+        return readChunks(input, null);
+    }
+
+    /**
+     * Decodes a body, like {@link String#String(byte[], String)} malformed input is replaced
+     *
+     * @param bytes    the bytes of the body
+     * @param encoding the character encoding, the platform's default if null or not supported
+     * @return the body
+     */
+    static String decode(byte[] bytes, String encoding) {
+        return new String(bytes, charset(encoding));
+    }
+
+    private static byte[] read(InputStream input, int contentLength) throws IOException {
+        byte[] bytes = new byte[contentLength];
+        int count = 0;
+
+        while (count < contentLength) {
+            int read = input.read(bytes, count, contentLength - count);
+            if (read < 0) {
+                return Arrays.copyOf(bytes, count);
+            }
+            count += read;
+        }
+
+        // the body should end here, the rest is read in case the Content-Length was wrong
+        int next = input.read();
+        if (next < 0) {
+            return bytes;
+        }
+
+        byte[] head = Arrays.copyOf(bytes, contentLength + 1);
+        head[contentLength] = (byte) next;
+        return readChunks(input, head);
+    }
+
+    private static byte[] readChunks(InputStream input, byte[] head) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        int count = 0;
+
+        for (int read = input.read(chunk, count, CHUNK_SIZE - count);
+             read >= 0;
+             read = input.read(chunk, count, CHUNK_SIZE - count)) {
+            count += read;
+            if (count == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new byte[CHUNK_SIZE];
+                count = 0;
+            }
+        }
+
+        int offset = head != null ? head.length : 0;
+        long length = (long) offset + (long) chunks.size() * CHUNK_SIZE + count;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Request body too large to be read into an array: " + length + " bytes");
+        }
+
+        byte[] bytes = new byte[(int) length];
+        if (head != null) {
+            System.arraycopy(head, 0, bytes, 0, offset);
+        }
+        for (byte[] full : chunks) {
+            System.arraycopy(full, 0, bytes, offset, CHUNK_SIZE);
+            offset += CHUNK_SIZE;
+        }
+        System.arraycopy(chunk, 0, bytes, offset, count);
+        return bytes;
+    }
+
+    private static Charset charset(String encoding) {
+        try {
+            if (encoding != null && Charset.isSupported(encoding)) {
+                return Charset.forName(encoding);
+            }
+        } catch (IllegalCharsetNameException e) {
+            // falls back to the default, as for an unsupported encoding
+        }
+        return Charset.defaultCharset();
+    }
+
+}
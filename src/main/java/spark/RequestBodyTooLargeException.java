@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark;
+
+/**
+ * Thrown when a request body is larger than allowed. It halts the request with 413 (Payload Too Large), also when
+ * it is thrown while the body is being read.
+ *
+ * @author Per Wendel
+ */
+public class RequestBodyTooLargeException extends HaltException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int PAYLOAD_TOO_LARGE = 413;
+
+    private final long maxSize;
+
+    /**
+     * @param maxSize the max number of bytes of the body
+     */
+    public RequestBodyTooLargeException(long maxSize) {
+        super(PAYLOAD_TOO_LARGE, "Request body larger than " + maxSize + " bytes");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the max number of bytes of the body
+     */
+    public long maxSize() {
+        return maxSize;
+    }
+
+}
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.RequestBodyConfiguration;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerClassWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerInstanceWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
@@ -40,6 +41,7 @@ import spark.route.ServletRoutes;
 import spark.routematch.RouteMatch;
 import spark.ssl.SslStores;
 import spark.staticfiles.MimeType;
+import spark.staticfiles.StaticFilesCache;
 import spark.staticfiles.StaticFilesConfiguration;
 
 import static java.util.Objects.requireNonNull;
@@ -78,6 +80,12 @@ public final class Service extends Routable {
     protected Deque<String> pathDeque = new ArrayDeque<>();
     protected Routes routes;
 
+    // the pending changes while routes are mapped by batch(RouteGroup), only seen by the thread mapping them
+    private final ThreadLocal<Routes.Batch> batch = new ThreadLocal<>();
+
+    // the host routes are mapped for by host(String, RouteGroup), null for all hosts, per thread mapping routes
+    private final ThreadLocal<String> host = new ThreadLocal<>();
+
     private CountDownLatch initLatch = new CountDownLatch(1);
     private CountDownLatch stopLatch = new CountDownLatch(0);
 
@@ -97,6 +105,8 @@ public final class Service extends Routable {
 
     private boolean trustForwardHeaders = true;
 
+    private final RequestBodyConfiguration requestBodyConfiguration = RequestBodyConfiguration.create();
+
     /**
      * Creates a new Service (a Spark instance). This should be used instead of the static API if the user wants
      * multiple services in one process.
@@ -328,6 +338,67 @@ public final class Service extends Routable {
         return this;
     }
 
+    /**
+     * Reads request bodies directly from the connection instead of keeping them to be read again. The body of a
+     * request can then be read once only, e.g. either by a before filter or by the route.
+     *
+     * @return the object with request bodies streamed
+     */
+    public synchronized Service streamRequestBodies() {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        requestBodyConfiguration.stream();
+        return this;
+    }
+
+    /**
+     * Reads request bodies asynchronously, as their bytes arrive, and handles a request once its body has arrived.
+     * A client sending its body slowly then does not take up a thread of the embedded web server until the body is
+     * complete, filters and routes reading the body do not wait for it. Multipart/form-data bodies are read as
+     * before. Has no effect when request bodies are streamed.
+     *
+     * @return the object with request bodies read asynchronously
+     */
+    public synchronized Service readRequestBodiesAsync() {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        requestBodyConfiguration.readAsync();
+        return this;
+    }
+
+    /**
+     * Sets the max number of bytes of a request body kept in memory to be read again, the rest of the body is kept
+     * in a temp file until the request has been handled. Defaults to 1 MB.
+     *
+     * @param bytes the max number of bytes in memory
+     * @return the object with the threshold set
+     */
+    public synchronized Service requestBodyMemoryThreshold(long bytes) {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        requestBodyConfiguration.setMemoryThreshold(bytes);
+        return this;
+    }
+
+    /**
+     * Sets the max number of bytes of a request body. A request with a larger Content-Length is rejected with 413
+     * (Payload Too Large) before its body is read, a streamed or chunked body as soon as it grows larger. A route can
+     * lower the limit for its requests with {@link Request#maxBodySize(long)}, e.g. in a before filter.
+     *
+     * @param bytes the max number of bytes, -1 for no limit (default)
+     * @return the object with the max size set
+     */
+    public synchronized Service maxRequestBodySize(long bytes) {
+        if (initialized) {
+            throwBeforeRouteMappingException();
+        }
+        requestBodyConfiguration.setMaxSize(bytes);
+        return this;
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -377,7 +448,8 @@ public final class Service extends Routable {
      * @throws IllegalArgumentException if <tt>path</tt> is null or blank
      */
     public boolean unmap(String path) {
-        return routes.remove(path);
+        Routes.Batch changes = batch.get();
+        return changes != null ? changes.remove(path) : routes.remove(path);
     }
 
     /**
@@ -392,7 +464,8 @@ public final class Service extends Routable {
      *                                  or an invalid HTTP method
      */
     public boolean unmap(String path, String httpMethod) {
-        return routes.remove(path, httpMethod);
+        Routes.Batch changes = batch.get();
+        return changes != null ? changes.remove(path, httpMethod) : routes.remove(path, httpMethod);
     }
 
     /**
@@ -500,6 +573,18 @@ public final class Service extends Routable {
         }
     }
 
+    /**
+     * Freezes the routes once all of them have been mapped, typically after {@link #awaitInitialization()} has
+     * returned. The routes are then compiled for dispatching and mapping or unmapping routes afterwards throws an
+     * {@link IllegalStateException}. Freezing is optional.
+     */
+    public synchronized void freezeRoutes() {
+        if (!initialized) {
+            throw new IllegalStateException("Server has not been properly initialized");
+        }
+        routes.freeze();
+    }
+
     private void throwBeforeRouteMappingException() {
         throw new IllegalStateException(
                 "This must be done before route mapping has begun");
@@ -571,6 +656,64 @@ public final class Service extends Routable {
         pathDeque.removeLast();
     }
 
+    /**
+     * Maps the routes and filters declared in the routeGroup for a host only, for example:
+     * host("api.example.com", () -> {
+     * ....get("/users", UserApi::list);
+     * });
+     * host("*.tenants.example.com", () -> {
+     * ....before("/*", TenantFilter::resolve);
+     * });
+     * The host is either exact or a wildcard subdomain, '*.example.com' matches 'a.example.com' and
+     * 'a.b.example.com' but not 'example.com'. Requests are routed on the Host header first, only the routes
+     * mapped for the host and those mapped for all hosts are then matched. An exact host is preferred over a
+     * wildcard one. Routes mapped with the deprecated String based http methods are mapped for all hosts.
+     *
+     * @param host       the host or wildcard subdomain
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public void host(String host, RouteGroup routeGroup) {
+        String previous = this.host.get();
+        this.host.set(host);
+        try {
+            routeGroup.addRoutes();
+        } finally {
+            if (previous != null) {
+                this.host.set(previous);
+            } else {
+                this.host.remove();
+            }
+        }
+    }
+
+    /**
+     * Maps and unmaps the routes of the routeGroup at once. Requests are routed either without or with all of the
+     * changes made by the routeGroup, which makes it possible to swap sets of routes while the server is running,
+     * for example:
+     * batch(() -> {
+     * ....unmap("/search");
+     * ....get("/search", featureEnabled ? SearchApi::searchV2 : SearchApi::search);
+     * });
+     *
+     * @param routeGroup group of routes (can also contain path() and unmap() calls)
+     */
+    public synchronized void batch(RouteGroup routeGroup) {
+        init();
+        routes.update(changes -> {
+            Routes.Batch previous = batch.get();
+            batch.set(changes);
+            try {
+                routeGroup.addRoutes();
+            } finally {
+                if (previous != null) {
+                    batch.set(previous);
+                } else {
+                    batch.remove();
+                }
+            }
+        });
+    }
+
     public String getPaths() {
         return pathDeque.stream().collect(Collectors.joining(""));
     }
@@ -584,27 +727,51 @@ public final class Service extends Routable {
     @Override
     public void addRoute(HttpMethod httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod, route.withPrefix(getPaths()));
+        RouteImpl prefixed = route.withPrefix(getPaths());
+        Routes.Batch changes = batch.get();
+        if (changes != null) {
+            changes.add(httpMethod, host.get(), prefixed);
+        } else {
+            routes.add(httpMethod, host.get(), prefixed);
+        }
     }
 
     @Override
     public void addFilter(HttpMethod httpMethod, FilterImpl filter) {
         init();
-        routes.add(httpMethod, filter.withPrefix(getPaths()));
+        FilterImpl prefixed = filter.withPrefix(getPaths());
+        Routes.Batch changes = batch.get();
+        if (changes != null) {
+            changes.add(httpMethod, host.get(), prefixed);
+        } else {
+            routes.add(httpMethod, host.get(), prefixed);
+        }
     }
 
     @Override
     @Deprecated
     public void addRoute(String httpMethod, RouteImpl route) {
         init();
-        routes.add(httpMethod + " '" + getPaths() + route.getPath() + "'", route.getAcceptType(), route);
+        String path = httpMethod + " '" + getPaths() + route.getPath() + "'";
+        Routes.Batch changes = batch.get();
+        if (changes != null) {
+            changes.add(path, route.getAcceptType(), route);
+        } else {
+            routes.add(path, route.getAcceptType(), route);
+        }
     }
 
     @Override
     @Deprecated
     public void addFilter(String httpMethod, FilterImpl filter) {
         init();
-        routes.add(httpMethod + " '" + getPaths() + filter.getPath() + "'", filter.getAcceptType(), filter);
+        String path = httpMethod + " '" + getPaths() + filter.getPath() + "'";
+        Routes.Batch changes = batch.get();
+        if (changes != null) {
+            changes.add(path, filter.getAcceptType(), filter);
+        } else {
+            routes.add(path, filter.getAcceptType(), filter);
+        }
     }
 
     public synchronized void init() {
@@ -629,6 +796,7 @@ public final class Service extends Routable {
 
                     server.configureWebSockets(webSocketHandlers, webSocketIdleTimeoutMillis);
                     server.trustForwardHeaders(trustForwardHeaders);
+                    server.configureRequestBodies(requestBodyConfiguration);
 
                     port = server.ignite(
                             ipAddress,
@@ -637,6 +805,8 @@ public final class Service extends Routable {
                             maxThreads,
                             minThreads,
                             threadIdleTimeoutMillis);
+
+                    staticFilesConfiguration.warmUp();
                   } catch (Exception e) {
                     initExceptionHandler.accept(e);
                   }
@@ -671,6 +841,22 @@ public final class Service extends Routable {
         return 0;
     }
 
+    /**
+     * @return The number of requests rejected by the embedded Jetty server because their body was too large
+     */
+    public long rejectedRequestBodyCount() {
+        return requestBodyConfiguration.getRejectedByContentLengthCount()
+                + requestBodyConfiguration.getRejectedWhileReadingCount();
+    }
+
+    /**
+     * @return The number of requests rejected by the embedded Jetty server because of their Content-Length, before
+     * any of their body was read
+     */
+    public long earlyRejectedRequestBodyCount() {
+        return requestBodyConfiguration.getRejectedByContentLengthCount();
+    }
+
     //////////////////////////////////////////////////
     // EXCEPTION mapper
     //////////////////////////////////////////////////
@@ -808,6 +994,46 @@ public final class Service extends Routable {
             externalStaticFileLocation(externalFolder);
         }
 
+        /**
+         * Indexes the external folder serving static files and watches it for changes. Requests for paths that
+         * are not files in the folder are then passed on to the routes without probing the folder.
+         */
+        @Experimental("Functionality will not be removed. The API might change")
+        public void watchExternalLocation() {
+            staticFilesConfiguration.watchExternal();
+        }
+
+        /**
+         * Caches static files in memory, up to a budget of bytes. The least recently served files are evicted
+         * when the budget is exceeded.
+         *
+         * @param maxBytes the max number of bytes held by the cache, files larger than a quarter of it are not cached
+         */
+        @Experimental("Functionality will not be removed. The API might change")
+        public void enableCache(long maxBytes) {
+            staticFilesConfiguration.enableCache(maxBytes);
+        }
+
+        /**
+         * @return the cache of static files, with its hit ratio, or null if caching is not enabled
+         */
+        @Experimental("Functionality will not be removed. The API might change")
+        public StaticFilesCache cache() {
+            return staticFilesConfiguration.cache();
+        }
+
+        /**
+         * Preloads the static files when the server is initialized, before {@link Service#awaitInitialization()}
+         * returns. The files are read and compressed in parallel, and put in the cache if caching is enabled, until
+         * the budget is used.
+         *
+         * @param maxBytes the max number of bytes of files to preload
+         */
+        @Experimental("Functionality will not be removed. The API might change")
+        public void warmUp(long maxBytes) {
+            staticFilesConfiguration.enableWarmUp(maxBytes);
+        }
+
         /**
          * Puts custom headers for static resources. If the headers previously contained mapping for
          * a specific key in the provided headers map, the old value is replaced by the specified value.
@@ -87,6 +87,27 @@ public class Spark {
         getInstance().path(path, routeGroup);
     }
 
+    /**
+     * Maps the routes and filters declared in the routeGroup for a host only, exact (e.g. 'api.example.com') or
+     * wildcard subdomain (e.g. '*.example.com'). See {@link Service#host(String, RouteGroup)}.
+     *
+     * @param host       the host or wildcard subdomain
+     * @param routeGroup group of routes (can also contain path() calls)
+     */
+    public static void host(String host, RouteGroup routeGroup) {
+        getInstance().host(host, routeGroup);
+    }
+
+    /**
+     * Maps and unmaps the routes of the routeGroup at once, requests are routed either without or with all of
+     * the changes. See {@link Service#batch(RouteGroup)}.
+     *
+     * @param routeGroup group of routes (can also contain path() and unmap() calls)
+     */
+    public static void batch(RouteGroup routeGroup) {
+        getInstance().batch(routeGroup);
+    }
+
     /**
      * Map the route for HTTP GET requests
      *
@@ -1174,6 +1195,42 @@ public class Spark {
         getInstance().threadPool(maxThreads, minThreads, idleTimeoutMillis);
     }
 
+    /**
+     * Reads request bodies directly from the connection instead of keeping them to be read again.
+     * See {@link Service#streamRequestBodies()}.
+     */
+    public static void streamRequestBodies() {
+        getInstance().streamRequestBodies();
+    }
+
+    /**
+     * Reads request bodies asynchronously and handles a request once its body has arrived.
+     * See {@link Service#readRequestBodiesAsync()}.
+     */
+    public static void readRequestBodiesAsync() {
+        getInstance().readRequestBodiesAsync();
+    }
+
+    /**
+     * Sets the max number of bytes of a request body kept in memory, the rest of the body is kept in a temp file.
+     * See {@link Service#requestBodyMemoryThreshold(long)}.
+     *
+     * @param bytes the max number of bytes in memory
+     */
+    public static void requestBodyMemoryThreshold(long bytes) {
+        getInstance().requestBodyMemoryThreshold(bytes);
+    }
+
+    /**
+     * Sets the max number of bytes of a request body, requests with larger bodies are rejected with 413.
+     * See {@link Service#maxRequestBodySize(long)}.
+     *
+     * @param bytes the max number of bytes, -1 for no limit (default)
+     */
+    public static void maxRequestBodySize(long bytes) {
+        getInstance().maxRequestBodySize(bytes);
+    }
+
     /**
      * Sets the folder in classpath serving static files. Observe: this method
      * must be called before all other methods.
@@ -1206,6 +1263,14 @@ public class Spark {
         getInstance().awaitInitialization();
     }
 
+    /**
+     * Freezes the routes once all of them have been mapped, mapping or unmapping routes afterwards throws an
+     * {@link IllegalStateException}. See {@link Service#freezeRoutes()}.
+     */
+    public static void freezeRoutes() {
+        getInstance().freezeRoutes();
+    }
+
     /**
      * Stops the Spark server and clears all routes
      */
@@ -1328,5 +1393,19 @@ public class Spark {
         return getInstance().activeThreadCount();
     }
 
+    /**
+     * @return The number of requests rejected by the embedded Jetty server because their body was too large
+     */
+    public static long rejectedRequestBodyCount() {
+        return getInstance().rejectedRequestBodyCount();
+    }
+
+    /**
+     * @return The number of requests rejected by the embedded Jetty server because of their Content-Length
+     */
+    public static long earlyRejectedRequestBodyCount() {
+        return getInstance().earlyRejectedRequestBodyCount();
+    }
+
 
 }
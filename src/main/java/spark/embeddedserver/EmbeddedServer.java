@@ -55,6 +55,15 @@ public interface EmbeddedServer {
 
     }
 
+    /**
+     * Configures how request bodies are read. Must be called before ignite()
+     *
+     * @param requestBodyConfiguration the request body configuration
+     */
+    default void configureRequestBodies(RequestBodyConfiguration requestBodyConfiguration) {
+
+    }
+
     /**
      * Configures the web sockets for the embedded server.
      *
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * A request whose body is read by an embedded server, which can limit the size of the body while it is read from
+ * the connection and releases the resources of the request once it has been handled. When running from a servlet
+ * there is no managed request, the resources are then released by the filter handling the routes.
+ *
+ * @author Per Wendel
+ */
+public interface ManagedRequest {
+
+    /**
+     * The resources to close when running from a servlet, a list of {@link Closeable}
+     */
+    String RESOURCES_ATTRIBUTE = ManagedRequest.class.getName() + ".resources";
+
+    /**
+     * Limits the size of the body, the limit can only be lowered
+     *
+     * @param maxSize the max number of bytes of the body
+     * @throws spark.RequestBodyTooLargeException if the body is larger, or as soon as more of it has been read
+     */
+    void limitBody(long maxSize);
+
+    /**
+     * Closes a resource of the request, e.g. the temp files of a multipart body, once the request has been handled
+     *
+     * @param closeable the resource
+     */
+    void closeOnRelease(Closeable closeable);
+
+    /**
+     * Finds the managed request of a request, which can be wrapped
+     *
+     * @param request the request
+     * @return the managed request or null if the request is not managed by an embedded server
+     */
+    static ManagedRequest of(ServletRequest request) {
+        while (request != null) {
+            if (request instanceof ManagedRequest) {
+                return (ManagedRequest) request;
+            }
+            request = request instanceof ServletRequestWrapper ? ((ServletRequestWrapper) request).getRequest() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Closes a resource once the request has been handled, by the managed request if there is one, otherwise by
+     * {@link #releaseUnmanaged(ServletRequest)}
+     *
+     * @param request   the request
+     * @param closeable the resource
+     */
+    @SuppressWarnings("unchecked")
+    static void closeWhenHandled(ServletRequest request, Closeable closeable) {
+        ManagedRequest managedRequest = of(request);
+        if (managedRequest != null) {
+            managedRequest.closeOnRelease(closeable);
+            return;
+        }
+
+        List<Closeable> resources = (List<Closeable>) request.getAttribute(RESOURCES_ATTRIBUTE);
+        if (resources == null) {
+            resources = new ArrayList<>();
+            request.setAttribute(RESOURCES_ATTRIBUTE, resources);
+        }
+        resources.add(closeable);
+    }
+
+    /**
+     * Closes the resources of a request not managed by an embedded server, once it has been handled
+     *
+     * @param request the request
+     */
+    @SuppressWarnings("unchecked")
+    static void releaseUnmanaged(ServletRequest request) {
+        List<Closeable> resources = (List<Closeable>) request.getAttribute(RESOURCES_ATTRIBUTE);
+        if (resources == null) {
+            return;
+        }
+        request.removeAttribute(RESOURCES_ATTRIBUTE);
+
+        for (Closeable closeable : resources) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LoggerFactory.getLogger(ManagedRequest.class).warn("Error when releasing request resources", e);
+            }
+        }
+    }
+
+}
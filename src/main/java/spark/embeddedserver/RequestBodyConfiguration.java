@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import spark.utils.Assert;
+
+/**
+ * Holds the configuration of how request bodies are read. By default a body is kept as it is read, so that it can be
+ * read again, e.g. by a filter and then by the route. The bytes above a threshold are kept in a temp file rather than
+ * in memory. In streaming mode the body is read directly from the connection and can only be read once.
+ * <p>
+ * Bodies can be read asynchronously, the request is then handled once its body has arrived, without taking up a
+ * thread while a slow client is sending it.
+ * <p>
+ * Bodies can be limited in size, requests with larger bodies are rejected with 413 (Payload Too Large). The number
+ * of rejected requests is counted.
+ *
+ * @author Per Wendel
+ */
+public class RequestBodyConfiguration {
+
+    public static final long DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private volatile boolean streaming = false;
+    private volatile boolean readAsync = false;
+    private volatile long memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+    private volatile long maxSize = -1;
+
+    private final LongAdder rejectedByContentLength = new LongAdder();
+    private final LongAdder rejectedWhileReading = new LongAdder();
+
+    public static RequestBodyConfiguration create() {
+        return new RequestBodyConfiguration();
+    }
+
+    /**
+     * Reads request bodies directly from the connection, without keeping them to be read again
+     */
+    public void stream() {
+        streaming = true;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Reads request bodies without blocking, as their bytes arrive, before the request is handled. Not used for
+     * multipart/form-data bodies, which are read as parts by the request, nor in streaming mode.
+     */
+    public void readAsync() {
+        readAsync = true;
+    }
+
+    public boolean isReadAsync() {
+        return readAsync && !streaming;
+    }
+
+    /**
+     * Sets the max number of bytes of a request body kept in memory, the rest of the body is kept in a temp file
+     *
+     * @param memoryThreshold the max number of bytes in memory
+     */
+    public void setMemoryThreshold(long memoryThreshold) {
+        Assert.isTrue(memoryThreshold >= 0, "'memoryThreshold' must not be negative");
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    public long getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * Sets the max number of bytes of a request body
+     *
+     * @param maxSize the max number of bytes, -1 for no limit
+     */
+    public void setMaxSize(long maxSize) {
+        Assert.isTrue(maxSize >= -1, "'maxSize' must not be less than -1");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the max number of bytes of a request body, -1 for no limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of requests rejected because of their Content-Length, before any of the body was read
+     */
+    public long getRejectedByContentLengthCount() {
+        return rejectedByContentLength.sum();
+    }
+
+    /**
+     * @return the number of requests rejected when their body, streamed or chunked, grew larger than allowed
+     */
+    public long getRejectedWhileReadingCount() {
+        return rejectedWhileReading.sum();
+    }
+
+    /**
+     * Counts a request rejected because of its Content-Length, called by the embedded server
+     */
+    public void rejectedByContentLength() {
+        rejectedByContentLength.increment();
+    }
+
+    /**
+     * Counts a request rejected while its body was read, called by the embedded server
+     */
+    public void rejectedWhileReading() {
+        rejectedWhileReading.increment();
+    }
+
+}
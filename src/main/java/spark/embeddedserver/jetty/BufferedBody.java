@@ -0,0 +1,345 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.embeddedserver.jetty;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A request body that is kept as it is read from the connection, so that it can be read again. Bytes above the
+ * memory threshold are kept in a temp file, which is deleted when the request has been handled.
+ *
+ * @author Per Wendel
+ */
+final class BufferedBody {
+    private static final Logger LOG = LoggerFactory.getLogger(BufferedBody.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ServletInputStream source;
+    private final long memoryThreshold;
+
+    private Memory memory;
+    private Path file;
+    // the streams reading the temp file, closed on release
+    private final List<InputStream> replays = new ArrayList<>();
+    private OutputStream fileOutputStream;
+    private long size;
+    private boolean complete;
+
+    /**
+     * @param source          the body as read from the connection
+     * @param memoryThreshold the max number of bytes kept in memory
+     * @param contentLength   the length of the body, -1 if unknown
+     */
+    BufferedBody(ServletInputStream source, long memoryThreshold, long contentLength) {
+        this.source = source;
+        this.memoryThreshold = memoryThreshold;
+
+        // the Content-Length is not trusted to allocate more before the bytes arrive, the buffer grows as they do
+        long expected = contentLength >= 0 ? Math.min(contentLength, BUFFER_SIZE) : BUFFER_SIZE;
+        this.memory = new Memory((int) Math.min(expected, memoryThreshold));
+    }
+
+    /**
+     * @return a stream reading the body from the connection, the bytes read are kept
+     */
+    ServletInputStream recording() {
+        return new RecordingInputStream();
+    }
+
+    /**
+     * Reads the body from the connection without blocking, as its bytes arrive. Either callback is called once,
+     * from a container thread.
+     *
+     * @param onComplete called when the whole body has been read and kept
+     * @param onError    called if the body could not be read
+     */
+    void readAsync(Runnable onComplete, Consumer<Throwable> onError) {
+        source.setReadListener(new AsyncReader(onComplete, onError));
+    }
+
+    /**
+     * @return a stream reading the whole body again, the part of it not read yet is read from the connection first
+     * @throws IOException in case of IO error.
+     */
+    ServletInputStream replay() throws IOException {
+        drain();
+
+        if (file != null) {
+            fileOutputStream.flush();
+            InputStream inputStream = Files.newInputStream(file);
+            replays.add(inputStream);
+            return new ReplayInputStream(inputStream, size);
+        }
+        return new ReplayInputStream(new ByteArrayInputStream(memory.array(), 0, memory.size()), size);
+    }
+
+    /**
+     * @return the number of bytes kept
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the bytes are kept in a temp file
+     */
+    boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * @return the temp file, null if the bytes are kept in memory
+     */
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Closes the streams reading the temp file and deletes it, if any
+     */
+    void release() {
+        if (file == null) {
+            return;
+        }
+
+        for (InputStream replay : replays) {
+            try {
+                replay.close();
+            } catch (IOException e) {
+                LOG.debug("Error when closing request body file", e);
+            }
+        }
+        replays.clear();
+
+        try {
+            fileOutputStream.close();
+        } catch (IOException e) {
+            LOG.debug("Error when closing request body file", e);
+        }
+        try {
+            Files.delete(file);
+        } catch (IOException e) {
+            LOG.warn("Request body file {} could not be deleted", file, e);
+        }
+        file = null;
+        memory = new Memory(0);
+    }
+
+    private void drain() throws IOException {
+        if (complete) {
+            return;
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read = source.read(buffer); read >= 0; read = source.read(buffer)) {
+            keep(buffer, 0, read);
+        }
+        complete = true;
+    }
+
+    private void keep(byte[] bytes, int offset, int length) throws IOException {
+        if (file == null && size + length > memoryThreshold) {
+            spill();
+        }
+
+        if (file != null) {
+            fileOutputStream.write(bytes, offset, length);
+        } else {
+            memory.write(bytes, offset, length);
+        }
+        size += length;
+    }
+
+    private void spill() throws IOException {
+        // readable by the owner only, the body can hold credentials
+        file = Files.createTempFile("spark-request-body", ".tmp");
+        fileOutputStream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        memory.writeTo(fileOutputStream);
+        memory = null;
+    }
+
+    /**
+     * Gives access to the bytes written, without copying them
+     */
+    private static final class Memory extends ByteArrayOutputStream {
+
+        private Memory(int size) {
+            super(size);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+
+    private final class AsyncReader implements ReadListener {
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final Runnable onComplete;
+        private final Consumer<Throwable> onError;
+        private boolean done;
+
+        private AsyncReader(Runnable onComplete, Consumer<Throwable> onError) {
+            this.onComplete = onComplete;
+            this.onError = onError;
+        }
+
+        @Override
+        public void onDataAvailable() {
+            try {
+                while (!done && source.isReady()) {
+                    int read = source.read(buffer);
+                    if (read < 0) {
+                        // onAllDataRead() follows
+                        return;
+                    }
+                    keep(buffer, 0, read);
+                }
+            } catch (IOException | RuntimeException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (!done) {
+                done = true;
+                complete = true;
+                onComplete.run();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (!done) {
+                done = true;
+                onError.accept(t);
+            }
+        }
+    }
+
+    private final class RecordingInputStream extends ServletInputStream {
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = source.read(bytes, offset, length);
+
+            if (read < 0) {
+                complete = true;
+            } else if (read > 0) {
+                keep(bytes, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return complete || source.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return source.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+    }
+
+    private static final class ReplayInputStream extends ServletInputStream {
+        private final InputStream inputStream;
+        private long remaining;
+
+        private ReplayInputStream(InputStream inputStream, long size) {
+            this.inputStream = inputStream;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = inputStream.read();
+            if (read >= 0) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = inputStream.read(bytes, offset, length);
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inputStream.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return remaining <= 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
+    }
+
+}
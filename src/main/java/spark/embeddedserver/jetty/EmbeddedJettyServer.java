@@ -34,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import spark.embeddedserver.EmbeddedServer;
+import spark.embeddedserver.RequestBodyConfiguration;
 import spark.embeddedserver.jetty.websocket.WebSocketHandlerWrapper;
 import spark.embeddedserver.jetty.websocket.WebSocketServletContextHandlerFactory;
 import spark.ssl.SslStores;
@@ -78,6 +79,13 @@ public class EmbeddedJettyServer implements EmbeddedServer {
         this.trustForwardHeaders = trust;
     }
 
+    @Override
+    public void configureRequestBodies(RequestBodyConfiguration requestBodyConfiguration) {
+        if (handler instanceof JettyHandler) {
+            ((JettyHandler) handler).configureRequestBodies(requestBodyConfiguration);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
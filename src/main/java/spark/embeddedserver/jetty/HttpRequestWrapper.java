@@ -16,26 +16,48 @@
  */
 package spark.embeddedserver.jetty;
 
-import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
-import spark.utils.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.RequestBodyTooLargeException;
+import spark.embeddedserver.ManagedRequest;
+import spark.embeddedserver.RequestBodyConfiguration;
 
 /**
- * Http request wrapper. Wraps the request so 'getInputStream()' can be called multiple times.
- * Also has methods for checking if request has been consumed.
+ * Http request wrapper. Wraps the request so 'getInputStream()' can be called multiple times, unless request bodies
+ * are streamed, see {@link RequestBodyConfiguration}. Also has methods for checking if request has been consumed.
+ * The body is limited in size while it is read from the connection, before any of it is kept.
  */
-public class HttpRequestWrapper extends HttpServletRequestWrapper {
-    private byte[] cachedBytes;
+public class HttpRequestWrapper extends HttpServletRequestWrapper implements ManagedRequest {
+    private static final Logger LOG = LoggerFactory.getLogger(HttpRequestWrapper.class);
+
+    private final RequestBodyConfiguration requestBodyConfiguration;
+    private BufferedBody body;
+    private LimitedInputStream limitedInputStream;
+    private boolean readAsync = false;
+    private List<Closeable> closeOnRelease;
+    private long maxSize;
     private boolean notConsumed = false;
 
     public HttpRequestWrapper(HttpServletRequest request) {
+        this(request, RequestBodyConfiguration.create());
+    }
+
+    public HttpRequestWrapper(HttpServletRequest request, RequestBodyConfiguration requestBodyConfiguration) {
         super(request);
+        this.requestBodyConfiguration = requestBodyConfiguration;
+        this.maxSize = requestBodyConfiguration.getMaxSize();
     }
 
     public boolean notConsumed() {
@@ -50,58 +72,191 @@ public class HttpRequestWrapper extends HttpServletRequestWrapper {
     public ServletInputStream getInputStream() throws IOException {
         HttpServletRequest request = (HttpServletRequest) super.getRequest();
 
+        if (readAsync) {
+            return body.replay();
+        }
+
         // disable stream cache for chunked transfer encoding
         String transferEncoding = request.getHeader("Transfer-Encoding");
         if ("chunked".equals(transferEncoding)) {
-            return super.getInputStream();
+            return limitedInputStream();
         }
 
         // disable stream cache for multipart/form-data file upload
         // -> upload might be very large and might lead to out-of-memory error if we try to cache the bytes
         String contentType = request.getHeader("Content-Type");
         if (contentType != null && contentType.startsWith("multipart/form-data")) {
-            return super.getInputStream();
+            return limitedInputStream();
         }
 
-        if (cachedBytes == null) {
-            cacheInputStream();
+        if (requestBodyConfiguration.isStreaming()) {
+            return limitedInputStream();
         }
-        return new CachedServletInputStream();
+
+        // the body is kept while it is read the first time, and read again from what was kept
+        if (body == null) {
+            body = new BufferedBody(limitedInputStream(),
+                                    requestBodyConfiguration.getMemoryThreshold(),
+                                    request.getContentLengthLong());
+            return body.recording();
+        }
+        return body.replay();
     }
 
-    private void cacheInputStream() throws IOException {
-        cachedBytes = IOUtils.toByteArray(super.getInputStream());
+    /**
+     * @return true if the request has a body that can be read asynchronously, i.e. not a multipart/form-data body
+     */
+    boolean hasAsyncReadableBody() {
+        if (getContentLengthLong() <= 0 && !"chunked".equals(getHeader("Transfer-Encoding"))) {
+            return false;
+        }
+        String contentType = getHeader("Content-Type");
+        return contentType == null || !contentType.startsWith("multipart/form-data");
     }
 
-    private class CachedServletInputStream extends ServletInputStream {
-        private ByteArrayInputStream byteArrayInputStream;
+    /**
+     * Reads the body without blocking, as its bytes arrive. The body is kept and then read from what was kept,
+     * whatever its transfer encoding.
+     *
+     * @param onComplete called when the whole body has been read
+     * @param onError    called if the body could not be read, e.g. if it is larger than allowed
+     * @throws IOException in case of IO error.
+     */
+    void readBodyAsync(Runnable onComplete, Consumer<Throwable> onError) throws IOException {
+        body = new BufferedBody(limitedInputStream(),
+                                requestBodyConfiguration.getMemoryThreshold(),
+                                getContentLengthLong());
+        readAsync = true;
+        body.readAsync(onComplete, onError);
+    }
 
-        public CachedServletInputStream() {
-            byteArrayInputStream = new ByteArrayInputStream(cachedBytes);
+    /**
+     * Limits the size of the body, e.g. for a route that accepts smaller bodies than the rest of the service. The
+     * limit can only be lowered.
+     *
+     * @param maxSize the max number of bytes of the body
+     * @throws RequestBodyTooLargeException if the Content-Length, or what has already been read, is larger
+     */
+    @Override
+    public void limitBody(long maxSize) {
+        if (this.maxSize >= 0 && this.maxSize <= maxSize) {
+            return;
+        }
+        this.maxSize = maxSize;
+
+        if (getContentLengthLong() > maxSize) {
+            requestBodyConfiguration.rejectedByContentLength();
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+        if (limitedInputStream != null && limitedInputStream.count > maxSize) {
+            limitedInputStream.reject();
+        }
+    }
+
+    /**
+     * Releases what is kept of the body, once the request has been handled
+     */
+    void release() {
+        if (body != null) {
+            body.release();
+        }
+
+        if (closeOnRelease != null) {
+            for (Closeable closeable : closeOnRelease) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    LOG.warn("Error when releasing request resources", e);
+                }
+            }
+            closeOnRelease = null;
+        }
+    }
+
+    @Override
+    public void closeOnRelease(Closeable closeable) {
+        if (closeOnRelease == null) {
+            closeOnRelease = new ArrayList<>();
+        }
+        closeOnRelease.add(closeable);
+    }
+
+    private ServletInputStream limitedInputStream() throws IOException {
+        if (limitedInputStream == null) {
+            limitedInputStream = new LimitedInputStream(super.getInputStream());
+        }
+        return limitedInputStream;
+    }
+
+    /**
+     * Counts the bytes read from the connection and rejects the request as soon as there are more than allowed
+     */
+    private final class LimitedInputStream extends ServletInputStream {
+        private final ServletInputStream source;
+        private long count;
+        private boolean rejected;
+
+        private LimitedInputStream(ServletInputStream source) {
+            this.source = source;
         }
 
         @Override
-        public int read() {
-            return byteArrayInputStream.read();
+        public int read() throws IOException {
+            int b = source.read();
+            if (b >= 0) {
+                counted(1);
+            }
+            return b;
         }
 
         @Override
-        public int available() {
-            return byteArrayInputStream.available();
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = source.read(b, off, len);
+            if (read > 0) {
+                counted(read);
+            }
+            return read;
         }
 
         @Override
         public boolean isFinished() {
-            return available() <= 0;
+            return source.isFinished();
         }
 
         @Override
         public boolean isReady() {
-            return available() >= 0;
+            return source.isReady();
         }
 
         @Override
         public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        private void counted(int read) {
+            count += read;
+            if (maxSize >= 0 && count > maxSize) {
+                reject();
+            }
+        }
+
+        private void reject() {
+            if (!rejected) {
+                rejected = true;
+                requestBodyConfiguration.rejectedWhileReading();
+            }
+            throw new RequestBodyTooLargeException(maxSize);
         }
     }
+
 }
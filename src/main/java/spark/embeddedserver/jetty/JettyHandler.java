@@ -18,6 +18,8 @@ package spark.embeddedserver.jetty;
 
 import java.io.IOException;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -25,6 +27,11 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.session.SessionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.RequestBodyTooLargeException;
+import spark.embeddedserver.RequestBodyConfiguration;
 
 /**
  * Simple Jetty Handler
@@ -32,13 +39,22 @@ import org.eclipse.jetty.server.session.SessionHandler;
  * @author Per Wendel
  */
 public class JettyHandler extends SessionHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(JettyHandler.class);
+
+    // the request wrapper holding a body read asynchronously, until the request is dispatched again to be handled
+    private static final String ASYNC_BODY_ATTRIBUTE = JettyHandler.class.getName() + ".asyncBody";
 
     private Filter filter;
+    private RequestBodyConfiguration requestBodyConfiguration = RequestBodyConfiguration.create();
 
     public JettyHandler(Filter filter) {
         this.filter = filter;
     }
 
+    public void configureRequestBodies(RequestBodyConfiguration requestBodyConfiguration) {
+        this.requestBodyConfiguration = requestBodyConfiguration;
+    }
+
     @Override
     public void doHandle(
             String target,
@@ -46,8 +62,32 @@ public class JettyHandler extends SessionHandler {
             HttpServletRequest request,
             HttpServletResponse response) throws IOException, ServletException {
 
-        HttpRequestWrapper wrapper = new HttpRequestWrapper(request);
-        filter.doFilter(wrapper, response, null);
+        HttpRequestWrapper wrapper = asyncBody(request);
+
+        if (wrapper == null) {
+            // rejected before any of the body is read
+            long maxSize = requestBodyConfiguration.getMaxSize();
+            if (maxSize >= 0 && request.getContentLengthLong() > maxSize) {
+                requestBodyConfiguration.rejectedByContentLength();
+                response.setStatus(RequestBodyTooLargeException.PAYLOAD_TOO_LARGE);
+                baseRequest.setHandled(true);
+                return;
+            }
+
+            wrapper = new HttpRequestWrapper(request, requestBodyConfiguration);
+
+            if (requestBodyConfiguration.isReadAsync() && wrapper.hasAsyncReadableBody()) {
+                readBodyAsync(wrapper, request, response);
+                baseRequest.setHandled(true);
+                return;
+            }
+        }
+
+        try {
+            filter.doFilter(wrapper, response, null);
+        } finally {
+            wrapper.release();
+        }
 
         if (wrapper.notConsumed()) {
             baseRequest.setHandled(false);
@@ -57,4 +97,38 @@ public class JettyHandler extends SessionHandler {
 
     }
 
+    private static HttpRequestWrapper asyncBody(HttpServletRequest request) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            return null;
+        }
+        Object wrapper = request.getAttribute(ASYNC_BODY_ATTRIBUTE);
+        request.removeAttribute(ASYNC_BODY_ATTRIBUTE);
+        return (HttpRequestWrapper) wrapper;
+    }
+
+    // the request is dispatched again once its body has arrived, no thread is taken up in the meantime
+    private static void readBodyAsync(HttpRequestWrapper wrapper,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        AsyncContext asyncContext = request.startAsync();
+        // a client that stops sending is timed out by the connection's idle timeout
+        asyncContext.setTimeout(0);
+        request.setAttribute(ASYNC_BODY_ATTRIBUTE, wrapper);
+
+        wrapper.readBodyAsync(asyncContext::dispatch, error -> {
+            try {
+                LOG.debug("Request body could not be read", error);
+                request.removeAttribute(ASYNC_BODY_ATTRIBUTE);
+                if (!response.isCommitted()) {
+                    response.setStatus(error instanceof RequestBodyTooLargeException
+                                               ? RequestBodyTooLargeException.PAYLOAD_TOO_LARGE
+                                               : HttpServletResponse.SC_BAD_REQUEST);
+                }
+            } finally {
+                wrapper.release();
+                asyncContext.complete();
+            }
+        });
+    }
+
 }
\ No newline at end of file
@@ -33,9 +33,11 @@ final class AfterFilters {
 
         Object content = context.body().get();
 
-        List<RouteMatch> matchSet = context.routeMatcher().findMultiple(HttpMethod.after,
-                                                                        context.uri(),
-                                                                        context.acceptType());
+        List<RouteMatch> matchSet = context.routeMatcher().findFilters(HttpMethod.after,
+                                                                       context.host(),
+                                                                       context.routeMatch(),
+                                                                       context.uri(),
+                                                                       context.acceptType());
 
         for (RouteMatch filterMatch : matchSet) {
             Object filterTarget = filterMatch.getTarget();
@@ -32,6 +32,7 @@ import spark.ExceptionMapper;
 import spark.HaltException;
 import spark.RequestResponseFactory;
 import spark.Response;
+import spark.embeddedserver.ManagedRequest;
 import spark.embeddedserver.jetty.HttpRequestWrapper;
 import spark.route.HttpMethod;
 import spark.serialization.SerializerChain;
@@ -44,8 +45,6 @@ import spark.staticfiles.StaticFilesConfiguration;
  */
 public class MatcherFilter implements Filter {
 
-    private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(MatcherFilter.class);
-
     private static final String ACCEPT_TYPE_REQUEST_MIME_HEADER = "Accept";
     private static final String HTTP_METHOD_OVERRIDE_HEADER = "X-HTTP-Method-Override";
 
@@ -58,6 +57,8 @@ public class MatcherFilter implements Filter {
     private boolean externalContainer;
     private boolean hasOtherHandlers;
 
+    private final UnmappedRequestLog unmappedRequestLog = new UnmappedRequestLog();
+
     /**
      * Constructor
      *
@@ -81,6 +82,13 @@ public class MatcherFilter implements Filter {
         this.serializerChain = new SerializerChain();
     }
 
+    /**
+     * @return the number of requests to routes that have not been mapped
+     */
+    public long unmappedRequestCount() {
+        return unmappedRequestLog.count();
+    }
+
     @Override
     public void init(FilterConfig config) {
         //
@@ -101,6 +109,32 @@ public class MatcherFilter implements Filter {
             return;
         }
 
+        doFilterRoutes(httpRequest, httpResponse, chain);
+    }
+
+    /**
+     * Handles a request with the routes only, for callers that have already looked for a static file
+     *
+     * @param httpRequest  the HTTP servlet request
+     * @param httpResponse the HTTP servlet response
+     * @param chain        the filter chain, invoked if the request is not consumed, may be null
+     * @throws IOException      in case of IO error.
+     * @throws ServletException in case of servlet error.
+     */
+    public void doFilterRoutes(HttpServletRequest httpRequest,
+                               HttpServletResponse httpResponse,
+                               FilterChain chain) throws IOException, ServletException {
+        try {
+            handleRoutes(httpRequest, httpResponse, chain);
+        } finally {
+            // the resources of a request not managed by an embedded server, e.g. the temp files of multipart parts
+            ManagedRequest.releaseUnmanaged(httpRequest);
+        }
+    }
+
+    private void handleRoutes(HttpServletRequest httpRequest,
+                              HttpServletResponse httpResponse,
+                              FilterChain chain) throws IOException, ServletException {
         String method = getHttpMethodFrom(httpRequest);
 
         String httpMethodStr = method.toLowerCase();
@@ -115,7 +149,10 @@ public class MatcherFilter implements Filter {
         Response response = RequestResponseFactory.create(httpResponse);
 
         HttpMethod httpMethod = HttpMethod.get(httpMethodStr);
+        String host = httpRequest.getServerName();
 
+        // the route is looked up once, before the before filters are executed, as they are resolved from the route.
+        // A route mapped or unmapped by a before filter therefore applies from the next request on.
         RouteContext context = RouteContext.create()
                 .withMatcher(routeMatcher)
                 .withHttpRequest(httpRequest)
@@ -125,7 +162,9 @@ public class MatcherFilter implements Filter {
                 .withRequestWrapper(requestWrapper)
                 .withResponseWrapper(responseWrapper)
                 .withResponse(response)
-                .withHttpMethod(httpMethod);
+                .withHttpMethod(httpMethod)
+                .withHost(host)
+                .withRouteMatch(routeMatcher.find(httpMethod, host, uri, acceptType));
 
         try {
             try {
@@ -157,23 +196,25 @@ public class MatcherFilter implements Filter {
             }
 
             if (body.notSet() && hasOtherHandlers) {
-                if (servletRequest instanceof HttpRequestWrapper) {
-                    ((HttpRequestWrapper) servletRequest).notConsumed(true);
+                if (httpRequest instanceof HttpRequestWrapper) {
+                    ((HttpRequestWrapper) httpRequest).notConsumed(true);
                     return;
                 }
             }
 
             if (body.notSet()) {
-                LOG.info("The requested route [{}] has not been mapped in Spark for {}: [{}]",
-                         uri, ACCEPT_TYPE_REQUEST_MIME_HEADER, acceptType);
+                unmappedRequestLog.record(uri, acceptType);
                 httpResponse.setStatus(HttpServletResponse.SC_NOT_FOUND);
 
-                if (CustomErrorPages.existsFor(404)) {
+                // encoded once unless rendered by a route
+                byte[] notFoundPage = CustomErrorPages.getEncodedFor(404);
+
+                if (notFoundPage != null) {
+                    body.set(notFoundPage);
+                } else {
                     requestWrapper.setDelegate(RequestResponseFactory.create(httpRequest));
                     responseWrapper.setDelegate(RequestResponseFactory.create(httpResponse));
                     body.set(CustomErrorPages.getFor(404, requestWrapper, responseWrapper));
-                } else {
-                    body.set(String.format(CustomErrorPages.NOT_FOUND));
                 }
             }
         } finally {
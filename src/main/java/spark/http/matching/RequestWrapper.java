@@ -18,6 +18,7 @@ package spark.http.matching;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -25,6 +26,8 @@ import spark.Access;
 import spark.QueryParamsMap;
 import spark.Request;
 import spark.Session;
+import spark.multipart.MultipartConfiguration;
+import spark.multipart.MultipartParts;
 import spark.routematch.RouteMatch;
 
 final class RequestWrapper extends Request {
@@ -99,6 +102,21 @@ final class RequestWrapper extends Request {
         return delegate.bodyAsBytes();
     }
 
+    @Override
+    public MultipartParts parts() {
+        return delegate.parts();
+    }
+
+    @Override
+    public MultipartParts parts(MultipartConfiguration configuration) {
+        return delegate.parts(configuration);
+    }
+
+    @Override
+    public void maxBodySize(long bytes) {
+        delegate.maxBodySize(bytes);
+    }
+
     @Override
     public int contentLength() {
         return delegate.contentLength();
@@ -124,6 +142,21 @@ final class RequestWrapper extends Request {
         return delegate.params(param);
     }
 
+    @Override
+    public int paramAsInt(String param) {
+        return delegate.paramAsInt(param);
+    }
+
+    @Override
+    public long paramAsLong(String param) {
+        return delegate.paramAsLong(param);
+    }
+
+    @Override
+    public UUID paramAsUUID(String param) {
+        return delegate.paramAsUUID(param);
+    }
+
     @Override
     public String[] splat() {
         return delegate.splat();
@@ -21,6 +21,7 @@ import javax.servlet.http.HttpServletRequest;
 import spark.Response;
 import spark.route.*;
 import spark.route.Routes;
+import spark.routematch.RouteMatch;
 
 /**
  * Holds the parameters needed in the Before filters, Routes and After filters execution.
@@ -43,6 +44,8 @@ final class RouteContext {
     private ResponseWrapper responseWrapper;
     private Response response;
     private HttpMethod httpMethod;
+    private RouteMatch routeMatch;
+    private String host;
 
     private RouteContext() {
         // hidden
@@ -97,6 +100,16 @@ final class RouteContext {
         return this;
     }
 
+    public RouteContext withHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    public RouteContext withRouteMatch(RouteMatch routeMatch) {
+        this.routeMatch = routeMatch;
+        return this;
+    }
+
     public HttpServletRequest httpRequest() {
         return httpRequest;
     }
@@ -129,4 +142,12 @@ final class RouteContext {
         return httpMethod;
     }
 
+    public String host() {
+        return host;
+    }
+
+    public RouteMatch routeMatch() {
+        return routeMatch;
+    }
+
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.http.matching;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the requests to routes that have not been mapped and logs them rate limited, at most one line per
+ * interval with the number of requests since the previous line. Every request is logged at debug level.
+ *
+ * @author Per Wendel
+ */
+final class UnmappedRequestLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MatcherFilter.class);
+
+    static final long DEFAULT_INTERVAL_MILLIS = 10000;
+
+    private final long intervalNanos;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+    private final AtomicLong countLogged = new AtomicLong();
+
+    UnmappedRequestLog() {
+        this(DEFAULT_INTERVAL_MILLIS);
+    }
+
+    UnmappedRequestLog(long intervalMillis) {
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * Records a request to a route that has not been mapped
+     *
+     * @param uri        the requested uri
+     * @param acceptType the accept type
+     * @return true if the request was logged at info level
+     */
+    boolean record(String uri, String acceptType) {
+        count.increment();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("The requested route [{}] has not been mapped in Spark for Accept: [{}]", uri, acceptType);
+        }
+
+        long now = System.nanoTime();
+        long logAt = nextLogAt.get();
+
+        if (now - logAt >= 0 && nextLogAt.compareAndSet(logAt, now + intervalNanos)) {
+            long total = count.sum();
+            long since = total - countLogged.getAndSet(total);
+
+            LOG.info("The requested route [{}] has not been mapped in Spark for Accept: [{}] "
+                             + "({} unmapped request(s) since last logged, {} in total)",
+                     uri, acceptType, since, total);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of requests to routes that have not been mapped
+     */
+    long count() {
+        return count.sum();
+    }
+
+}
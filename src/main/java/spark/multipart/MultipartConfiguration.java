@@ -0,0 +1,106 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.multipart;
+
+import java.nio.file.Path;
+
+import spark.utils.Assert;
+
+/**
+ * Holds the limits of how a multipart/form-data body is read. Fields are kept in memory and limited to a smaller
+ * size than files, which are written to temp files.
+ *
+ * @author Per Wendel
+ */
+public class MultipartConfiguration {
+
+    public static final long DEFAULT_MAX_FIELD_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_PARTS = 1000;
+
+    private long maxFieldSize = DEFAULT_MAX_FIELD_SIZE;
+    private long maxFileSize = -1;
+    private int maxParts = DEFAULT_MAX_PARTS;
+    private Path directory;
+
+    public static MultipartConfiguration create() {
+        return new MultipartConfiguration();
+    }
+
+    /**
+     * Sets the max number of bytes of a field, i.e. a part without a filename, kept in memory
+     *
+     * @param bytes the max number of bytes
+     * @return the configuration
+     */
+    public MultipartConfiguration maxFieldSize(long bytes) {
+        Assert.isTrue(bytes >= 0, "'maxFieldSize' must not be negative");
+        this.maxFieldSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the max number of bytes of a file, i.e. a part with a filename
+     *
+     * @param bytes the max number of bytes, -1 for no limit other than the max size of the body (default)
+     * @return the configuration
+     */
+    public MultipartConfiguration maxFileSize(long bytes) {
+        Assert.isTrue(bytes >= -1, "'maxFileSize' must not be less than -1");
+        this.maxFileSize = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the max number of parts
+     *
+     * @param parts the max number of parts
+     * @return the configuration
+     */
+    public MultipartConfiguration maxParts(int parts) {
+        Assert.isTrue(parts > 0, "'maxParts' must be positive");
+        this.maxParts = parts;
+        return this;
+    }
+
+    /**
+     * Sets the folder of the temp files holding files
+     *
+     * @param directory the folder, the default temp folder if null
+     * @return the configuration
+     */
+    public MultipartConfiguration directory(Path directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    public long maxFieldSize() {
+        return maxFieldSize;
+    }
+
+    public long maxFileSize() {
+        return maxFileSize;
+    }
+
+    public int maxParts() {
+        return maxParts;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+}
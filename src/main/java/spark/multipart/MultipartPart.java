@@ -0,0 +1,282 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A part of a multipart/form-data body. The content of a field is held in memory, the content of a file is held in
+ * a temp file, which is deleted when the parts are closed unless it has been saved with {@link #saveTo(Path)}.
+ *
+ * @author Per Wendel
+ */
+public final class MultipartPart {
+
+    private final Map<String, String> headers;
+    private final String name;
+    private final String filename;
+    private final Charset charset;
+
+    private final byte[] content;  // null for a file
+    private Path file;             // null for a field
+    private final long size;
+
+    MultipartPart(Map<String, String> headers, Charset charset, byte[] content, Path file, long size) {
+        this.headers = headers;
+        this.charset = charset;
+        this.content = content;
+        this.file = file;
+        this.size = size;
+
+        String disposition = headers.get("content-disposition");
+        this.name = parameter(disposition, "name");
+        this.filename = parameter(disposition, "filename");
+    }
+
+    /**
+     * @return the name of the form field
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the filename sent by the client, as it was sent, null if the part is not a file
+     */
+    public String filename() {
+        return filename;
+    }
+
+    /**
+     * @return true if the part is a file, i.e. has a filename
+     */
+    public boolean isFile() {
+        return filename != null;
+    }
+
+    /**
+     * @return the content type, null if none was sent
+     */
+    public String contentType() {
+        return headers.get("content-type");
+    }
+
+    /**
+     * @param name the name of the header
+     * @return the value of the header of the part, null if there is none
+     */
+    public String header(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return the number of bytes of the content
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the content decoded with the charset of the part, or of the request, UTF-8 by default
+     */
+    public String value() {
+        return new String(bytes(), charset);
+    }
+
+    /**
+     * @return the content, read from the temp file for a file
+     */
+    public byte[] bytes() {
+        if (content != null) {
+            return content;
+        }
+        try {
+            return Files.readAllBytes(file());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return a stream reading the content
+     * @throws IOException in case of IO error.
+     */
+    public InputStream inputStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        return Files.newInputStream(file());
+    }
+
+    /**
+     * @return the temp file holding the content of a file, null for a field
+     */
+    public Path file() {
+        if (content == null && file == null) {
+            throw new IllegalStateException("The file of part '" + name + "' has been deleted or saved");
+        }
+        return file;
+    }
+
+    /**
+     * Saves the content to a file. The temp file of a file is moved, or if it cannot be moved copied next to the
+     * target and then renamed, so a partly written target is never visible.
+     *
+     * @param target the file to save to, replaced if it exists
+     * @return the target
+     * @throws IOException in case of IO error.
+     */
+    public Path saveTo(Path target) throws IOException {
+        if (content != null) {
+            return Files.write(target, content);
+        }
+
+        Path source = file();
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // e.g. on another file system
+            copy(source, target, size);
+            Files.delete(source);
+        }
+        file = null;
+        return target;
+    }
+
+    /**
+     * Copies a file without going through the heap. The copy is written to a temp file next to the target, which then
+     * replaces the target, so a partly written target is never visible.
+     *
+     * @param source the file to copy
+     * @param target the file to copy to, replaced if it exists
+     * @param size   the size of the source
+     * @throws IOException in case of IO error.
+     */
+    static void copy(Path source, Path target, long size) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (long position = 0, transferred = 1; position < size && transferred > 0; position += transferred) {
+                    transferred = out.transferFrom(in, position, size - position);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the temp file of a file, if it has not been saved
+     */
+    void delete() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+            file = null;
+        }
+    }
+
+    /**
+     * Gets a parameter of a header, e.g. 'form-data; name="field"; filename="a.txt"'. The header is read parameter
+     * by parameter, so a name only matches a whole parameter name, and a quoted value can hold ';' and '='.
+     *
+     * @return the value, unquoted, an empty string for a parameter without a value, null if there is none
+     */
+    static String parameter(String header, String name) {
+        if (header == null) {
+            return null;
+        }
+
+        int length = header.length();
+        int i = header.indexOf(';');  // the value before the first ';' is not a parameter
+
+        while (i >= 0 && i < length) {
+            i++;
+            int start = i;
+            while (i < length && header.charAt(i) != '=' && header.charAt(i) != ';') {
+                i++;
+            }
+            String key = header.substring(start, i).trim();
+
+            if (i == length || header.charAt(i) == ';') {
+                // a parameter without a value
+                if (key.equalsIgnoreCase(name)) {
+                    return "";
+                }
+                continue;
+            }
+
+            i++;
+            while (i < length && header.charAt(i) == ' ') {
+                i++;
+            }
+
+            String value;
+            if (i < length && header.charAt(i) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                for (i++; i < length && header.charAt(i) != '"'; i++) {
+                    char c = header.charAt(i);
+                    // only an escaped quote, browsers send the backslashes of a Windows path as they are
+                    if (c == '\\' && i + 1 < length && header.charAt(i + 1) == '"') {
+                        c = header.charAt(++i);
+                    }
+                    quoted.append(c);
+                }
+                value = quoted.toString();
+                while (i < length && header.charAt(i) != ';') {
+                    i++;
+                }
+            } else {
+                start = i;
+                while (i < length && header.charAt(i) != ';') {
+                    i++;
+                }
+                value = header.substring(start, i).trim();
+            }
+
+            if (key.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+}
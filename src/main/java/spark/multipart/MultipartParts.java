@@ -0,0 +1,280 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.multipart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import spark.RequestBodyTooLargeException;
+
+/**
+ * The parts of a multipart/form-data body, read from the connection one part at a time, in the order they were
+ * sent. A field is kept in memory, a file is written to a temp file as it is read, so the body is never held as a
+ * whole. The temp files are deleted when the parts are closed, which is done when the request has been handled by
+ * the embedded server.
+ * <p>
+ * A part larger than allowed halts the request with 413 (Payload Too Large), see
+ * {@link RequestBodyTooLargeException}. A malformed body throws a {@link MultipartException}.
+ *
+ * @author Per Wendel
+ */
+public final class MultipartParts implements Iterable<MultipartPart>, Closeable {
+
+    private static final String FORM_DATA = "multipart/form-data";
+    private static final String TEMP_FILE_PREFIX = "spark-multipart";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final MultipartReader reader;
+    private final MultipartConfiguration configuration;
+    private final Charset charset;
+
+    // the files read so far, deleted on close unless saved
+    private final List<MultipartPart> files = new ArrayList<>();
+    private int count;
+    private boolean iterated;
+    private boolean closed;
+
+    private MultipartParts(MultipartReader reader, MultipartConfiguration configuration, Charset charset) {
+        this.reader = reader;
+        this.configuration = configuration;
+        this.charset = charset;
+    }
+
+    /**
+     * Creates the parts of a body
+     *
+     * @param contentType   the Content-Type of the body, with the boundary
+     * @param input         the body
+     * @param encoding      the character encoding of fields without a charset of their own, UTF-8 if null
+     * @param configuration the limits
+     * @return the parts
+     * @throws MultipartException if the body is not multipart/form-data
+     */
+    public static MultipartParts of(String contentType,
+                                    InputStream input,
+                                    String encoding,
+                                    MultipartConfiguration configuration) {
+        if (!isFormData(contentType)) {
+            throw new MultipartException("Not a multipart/form-data body: " + contentType);
+        }
+
+        String boundary = MultipartPart.parameter(contentType, "boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new MultipartException("No boundary in multipart Content-Type: " + contentType);
+        }
+
+        MultipartReader reader = new MultipartReader(input, boundary);
+        return new MultipartParts(reader, configuration, charset(encoding, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the next part. The content of the previous part is complete at this point.
+     *
+     * @return the part, null after the last part
+     * @throws IOException in case of IO error.
+     */
+    public MultipartPart nextPart() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Multipart parts have been closed");
+        }
+        if (!reader.next()) {
+            return null;
+        }
+        if (count == configuration.maxParts()) {
+            throw new MultipartException("More than " + configuration.maxParts() + " multipart parts");
+        }
+        count++;
+
+        Map<String, String> headers = reader.headers();
+        Charset partCharset = charset(MultipartPart.parameter(headers.get("content-type"), "charset"), charset);
+
+        if (MultipartPart.parameter(headers.get("content-disposition"), "filename") == null) {
+            FieldSink field = new FieldSink(configuration.maxFieldSize());
+            reader.content(field);
+            return new MultipartPart(headers, partCharset, field.toByteArray(), null, field.size());
+        }
+
+        Path file = configuration.directory() != null
+                ? Files.createTempFile(configuration.directory(), TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX)
+                : Files.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+        long size;
+        try (FileSink sink = new FileSink(file, configuration.maxFileSize())) {
+            reader.content(sink);
+            size = sink.size;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        MultipartPart part = new MultipartPart(headers, partCharset, null, file, size);
+        files.add(part);
+        return part;
+    }
+
+    /**
+     * The parts can be iterated once, as they are read from the connection
+     *
+     * @return an iterator reading the parts
+     */
+    @Override
+    public Iterator<MultipartPart> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("Multipart parts can only be iterated once");
+        }
+        iterated = true;
+
+        return new Iterator<MultipartPart>() {
+            private MultipartPart next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = nextPart();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public MultipartPart next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                MultipartPart part = next;
+                next = null;
+                return part;
+            }
+        };
+    }
+
+    /**
+     * Deletes the temp files of the files not saved
+     *
+     * @throws IOException in case of IO error.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        IOException error = null;
+        for (MultipartPart file : files) {
+            try {
+                file.delete();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        files.clear();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // the media type without its parameters, e.g. 'multipart/form-data; boundary=x'
+    private static boolean isFormData(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mediaType = semicolon < 0 ? contentType : contentType.substring(0, semicolon);
+        return mediaType.trim().equalsIgnoreCase(FORM_DATA);
+    }
+
+    private static Charset charset(String encoding, Charset defaultCharset) {
+        try {
+            if (encoding != null && Charset.isSupported(encoding)) {
+                return Charset.forName(encoding);
+            }
+        } catch (IllegalCharsetNameException e) {
+            // falls back to the default, as for an unsupported encoding
+        }
+        return defaultCharset;
+    }
+
+    private static final class FieldSink extends ByteArrayOutputStream implements MultipartReader.Sink {
+        private final long maxSize;
+
+        private FieldSink(long maxSize) {
+            super(256);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (count + (long) length > maxSize) {
+                throw new RequestBodyTooLargeException(maxSize);
+            }
+            super.write(bytes, offset, length);
+        }
+    }
+
+    private static final class FileSink implements MultipartReader.Sink, Closeable {
+        private final FileChannel channel;
+        private final long maxSize;
+        private long size;
+
+        private FileSink(Path file, long maxSize) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            size += length;
+            if (maxSize >= 0 && size > maxSize) {
+                throw new RequestBodyTooLargeException(maxSize);
+            }
+
+            // written straight from the buffer of the reader
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
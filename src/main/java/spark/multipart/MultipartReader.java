@@ -0,0 +1,233 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the parts of a multipart/form-data body from a stream, through a buffer of a fixed size. The content of a
+ * part is handed over in segments of the buffer as the delimiter is searched for, it is never held as a whole.
+ *
+ * @author Per Wendel
+ */
+final class MultipartReader {
+
+    // a header line must fit in the buffer
+    static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int MAX_HEADERS = 64;
+
+    private final InputStream input;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+    private boolean atDelimiter;
+    private boolean finished;
+
+    /**
+     * Receives the content of a part
+     */
+    interface Sink {
+        void write(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    /**
+     * @param input    the body
+     * @param boundary the boundary from the Content-Type of the body
+     */
+    MultipartReader(InputStream input, String boundary) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 4)];
+
+        // the first delimiter is not preceded by a line break, the preamble before it is skipped
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Moves to the next part, skipping the preamble or the part of the content of the current part not read
+     *
+     * @return true if there is a part, false at the close delimiter
+     * @throws IOException in case of IO error.
+     */
+    boolean next() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!atDelimiter) {
+            content(null);
+        }
+        atDelimiter = false;
+
+        if (!ensure(2)) {
+            throw new MultipartException("Multipart body ends after a delimiter");
+        }
+        if (buffer[position] == '-' && buffer[position + 1] == '-') {
+            // the epilogue after the close delimiter is ignored
+            finished = true;
+            return false;
+        }
+
+        while (ensure(1) && (buffer[position] == ' ' || buffer[position] == '\t')) {
+            position++;
+        }
+        if (!ensure(2) || buffer[position] != '\r' || buffer[position + 1] != '\n') {
+            throw new MultipartException("Multipart delimiter is not followed by a line break");
+        }
+        position += 2;
+        return true;
+    }
+
+    /**
+     * Reads the headers of the current part
+     *
+     * @return the headers, by lower case name
+     * @throws IOException in case of IO error.
+     */
+    Map<String, String> headers() throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+
+        for (String line = line(); !line.isEmpty(); line = line()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new MultipartException("Malformed multipart header: " + line);
+            }
+            if (headers.size() == MAX_HEADERS) {
+                throw new MultipartException("More than " + MAX_HEADERS + " headers in a multipart part");
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    /**
+     * Reads the content of the current part, up to the next delimiter
+     *
+     * @param sink receives the content in segments, the content is skipped if null
+     * @throws IOException in case of IO error.
+     */
+    void content(Sink sink) throws IOException {
+        while (true) {
+            int found = indexOfDelimiter();
+            if (found >= 0) {
+                write(sink, found - position);
+                position = found + delimiter.length;
+                atDelimiter = true;
+                return;
+            }
+
+            // the end of the buffer can be the start of the delimiter
+            int safe = Math.max(position, limit - delimiter.length + 1);
+            write(sink, safe - position);
+            position = safe;
+
+            if (endOfStream) {
+                throw new MultipartException("Multipart body ends without a close delimiter");
+            }
+            fill();
+        }
+    }
+
+    private void write(Sink sink, int length) throws IOException {
+        if (sink != null && length > 0) {
+            sink.write(buffer, position, length);
+        }
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = limit - delimiter.length;
+
+        for (int i = position; i <= last; i++) {
+            if (buffer[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                j++;
+            }
+            if (j == delimiter.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String line() throws IOException {
+        int start = position;
+        int scanned = position;
+
+        while (true) {
+            for (int i = scanned; i + 1 < limit; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, start, i - start, StandardCharsets.UTF_8);
+                    position = i + 2;
+                    return line;
+                }
+            }
+
+            if (endOfStream) {
+                throw new MultipartException("Multipart body ends in the headers of a part");
+            }
+            if (start == 0 && limit == buffer.length) {
+                throw new MultipartException("Multipart header longer than " + buffer.length + " bytes");
+            }
+
+            int read = limit - start;
+            position = start;
+            fill();
+            start = position;
+            scanned = start + Math.max(0, read - 1);
+        }
+    }
+
+    private boolean ensure(int length) throws IOException {
+        while (limit - position < length) {
+            if (endOfStream) {
+                return false;
+            }
+            fill();
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+
+        int read = input.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+}
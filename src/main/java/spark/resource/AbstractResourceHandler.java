@@ -38,6 +38,16 @@ public abstract class AbstractResourceHandler {
      * @throws java.net.MalformedURLException thrown when malformed URL.
      */
     public AbstractFileResolvingResource getResource(HttpServletRequest request) throws MalformedURLException {
+        return getResource(getPathInContext(request));
+    }
+
+    /**
+     * Gets the path of the requested resource, ie. the servlet path and path info
+     *
+     * @param request the servlet request
+     * @return the path
+     */
+    public static String getPathInContext(HttpServletRequest request) {
         String servletPath;
         String pathInfo;
         boolean included = request.getAttribute(RequestDispatcher.INCLUDE_REQUEST_URI) != null;
@@ -55,8 +65,7 @@ public abstract class AbstractResourceHandler {
             pathInfo = request.getPathInfo();
         }
 
-        String pathInContext = addPaths(servletPath, pathInfo);
-        return getResource(pathInContext);
+        return addPaths(servletPath, pathInfo);
     }
 
     /**
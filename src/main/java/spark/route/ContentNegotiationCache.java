@@ -0,0 +1,203 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import spark.utils.MimeParse;
+
+/**
+ * Bounded cache of content negotiation results. Clients send only a handful of distinct Accept headers so the
+ * result of {@link MimeParse#bestMatch(java.util.Collection, String)} is cached per (accepted types, Accept header)
+ * and the header does not have to be parsed again.
+ * <p>
+ * Headers longer than {@value #MAX_HEADER_LENGTH} chars are not cached. When the cache is full results are evicted
+ * one at a time, in clock order: a result is only evicted if it has not been used since the clock hand last passed
+ * it.
+ *
+ * @author Per Wendel
+ */
+public final class ContentNegotiationCache {
+
+    static final int DEFAULT_MAX_SIZE = 1024;
+    static final int MAX_HEADER_LENGTH = 512;
+
+    private final Map<Key, Result> cache = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    // the clock hand, guarded by this
+    private Iterator<Result> hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ContentNegotiationCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    ContentNegotiationCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Finds the accept type best matching the Accept header
+     *
+     * @param acceptedTypes the distinct accept types of the candidate routes, in the order the routes were added
+     * @param header        the Accept header
+     * @return the best match or {@link MimeParse#NO_MIME_TYPE} if none of the types are acceptable
+     */
+    String bestMatch(List<String> acceptedTypes, String header) {
+        if (header.length() > MAX_HEADER_LENGTH) {
+            misses.increment();
+            return negotiate(acceptedTypes, header);
+        }
+
+        Key key = new Key(acceptedTypes, header);
+        Result result = cache.get(key);
+
+        if (result != null) {
+            result.referenced = true;
+            hits.increment();
+            return result.bestMatch;
+        }
+
+        misses.increment();
+        String bestMatch = negotiate(acceptedTypes, header);
+        add(key, bestMatch);
+
+        return bestMatch;
+    }
+
+    /**
+     * @return the number of negotiations answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of negotiations that needed the Accept header to be parsed
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of cached negotiation results
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Clears the cached results and the counters
+     */
+    public synchronized void clear() {
+        cache.clear();
+        hand = null;
+        hits.reset();
+        misses.reset();
+    }
+
+    private static String negotiate(List<String> acceptedTypes, String header) {
+        // ties are decided by iteration order, keep the order of the hash based set used before caching
+        Set<String> supported = new HashSet<>();
+        supported.addAll(acceptedTypes);
+        return MimeParse.bestMatch(supported, header);
+    }
+
+    private synchronized void add(Key key, String bestMatch) {
+        if (cache.containsKey(key)) {
+            return;
+        }
+        while (cache.size() >= maxSize) {
+            if (!evict()) {
+                return;
+            }
+        }
+        cache.put(key, new Result(bestMatch));
+    }
+
+    // evicts the first result not used since the hand passed it, or the next one once all results have been passed
+    private boolean evict() {
+        int size = cache.size();
+
+        for (int visited = 0; size > 0; visited++) {
+            if (hand == null || !hand.hasNext()) {
+                hand = cache.values().iterator();
+                if (!hand.hasNext()) {
+                    return false;
+                }
+            }
+
+            Result result = hand.next();
+            if (result.referenced && visited < size) {
+                result.referenced = false;
+                continue;
+            }
+
+            hand.remove();
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Result {
+        private final String bestMatch;
+        private volatile boolean referenced;
+
+        private Result(String bestMatch) {
+            this.bestMatch = bestMatch;
+        }
+    }
+
+    private static final class Key {
+        private final List<String> acceptedTypes;
+        private final String header;
+        private final int hash;
+
+        private Key(List<String> acceptedTypes, String header) {
+            this.acceptedTypes = acceptedTypes;
+            this.header = header;
+            this.hash = 31 * acceptedTypes.hashCode() + header.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && header.equals(other.header) && acceptedTypes.equals(other.acceptedTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
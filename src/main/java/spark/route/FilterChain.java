@@ -0,0 +1,93 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import spark.utils.SparkUtils;
+
+/**
+ * The filters (of one type, ie. before, after or afterafter) that can apply to the requests matched by a route.
+ * Resolved once per route path: filters that can never match the route's paths are left out and filters that
+ * match all of them (e.g. '*' or '/api/*' for '/api/:id') are not matched again per request.
+ * Only the remaining filters are checked against the requested path.
+ *
+ * @author Per Wendel
+ */
+final class FilterChain {
+
+    private final RouteEntry[] filters;
+    private final boolean[] alwaysMatching;
+
+    private FilterChain(RouteEntry[] filters, boolean[] alwaysMatching) {
+        this.filters = filters;
+        this.alwaysMatching = alwaysMatching;
+    }
+
+    /**
+     * Resolves the filter chain for a route
+     *
+     * @param filterType the filter type
+     * @param route      the route pattern
+     * @param entries    all route entries, in the order they were added
+     * @return the filter chain
+     */
+    static FilterChain resolve(HttpMethod filterType, RoutePattern route, List<RouteEntry> entries) {
+        List<RouteEntry> filters = new ArrayList<>();
+        List<Boolean> alwaysMatching = new ArrayList<>();
+
+        for (RouteEntry entry : entries) {
+            if (entry.httpMethod != filterType) {
+                continue;
+            }
+
+            if (SparkUtils.ALL_PATHS.equals(entry.path) || entry.pattern().covers(route)) {
+                filters.add(entry);
+                alwaysMatching.add(true);
+            } else if (!entry.pattern().excludes(route)) {
+                filters.add(entry);
+                alwaysMatching.add(false);
+            }
+        }
+
+        boolean[] always = new boolean[alwaysMatching.size()];
+        for (int i = 0; i < always.length; i++) {
+            always[i] = alwaysMatching.get(i);
+        }
+        return new FilterChain(filters.toArray(new RouteEntry[filters.size()]), always);
+    }
+
+    /**
+     * Gets the filters of the chain matching the requested path
+     *
+     * @param segments      the segments of the requested path
+     * @param trailingSlash if the requested path ends with a slash
+     * @return the matching filters, in the order they were added
+     */
+    List<RouteEntry> find(String[] segments, boolean trailingSlash) {
+        List<RouteEntry> matchSet = new ArrayList<>(filters.length);
+
+        for (int i = 0; i < filters.length; i++) {
+            if (alwaysMatching[i] || filters[i].pattern().matches(segments, trailingSlash)) {
+                matchSet.add(filters[i]);
+            }
+        }
+        return matchSet;
+    }
+
+}
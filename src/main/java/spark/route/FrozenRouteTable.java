@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import spark.utils.SparkUtils;
+
+/**
+ * Route table compiled once the routes will no longer change, see {@link Routes#freeze()}.
+ * <ul>
+ * <li>Requests to the path of a route without params or wildcards are answered from a hash map per http method
+ * (an array by ordinal), holding the matching entries and their accept types resolved in advance for all
+ * http methods that are mapped.</li>
+ * <li>Other requests are matched against the trie of the table.</li>
+ * <li>The filter chains of all routes are resolved in advance.</li>
+ * <li>The tables per host are frozen as well.</li>
+ * </ul>
+ *
+ * @author Per Wendel
+ */
+final class FrozenRouteTable extends RouteTable {
+
+    // the matching entries of the static paths, per http method (by ordinal)
+    private final Map<String, RouteCandidates>[] staticPaths;
+
+    // the filter chains of the routes, per filter type
+    private final Map<HttpMethod, Map<String, FilterChain>> filterChains = new EnumMap<>(HttpMethod.class);
+
+    /**
+     * Constructor
+     *
+     * @param entries the route entries, in the order they were added
+     */
+    FrozenRouteTable(List<RouteEntry> entries) {
+        this(entries, new UnmatchedPaths(), FrozenRouteTable::new);
+    }
+
+    private FrozenRouteTable(List<RouteEntry> entries, UnmatchedPaths unmatchedPaths) {
+        this(entries, unmatchedPaths, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FrozenRouteTable(List<RouteEntry> entries,
+                             UnmatchedPaths unmatchedPaths,
+                             BiFunction<List<RouteEntry>, UnmatchedPaths, RouteTable> hostTables) {
+        super(entries, unmatchedPaths, hostTables);
+
+        Set<String> paths = new LinkedHashSet<>();
+        Set<HttpMethod> methods = new LinkedHashSet<>();
+
+        for (RouteEntry entry : entries()) {
+            methods.add(entry.httpMethod);
+            if (entry.pattern().isStatic() && !SparkUtils.ALL_PATHS.equals(entry.path)) {
+                paths.add(entry.path);
+            }
+        }
+
+        staticPaths = new Map[HttpMethod.values().length];
+
+        for (HttpMethod httpMethod : methods) {
+            Map<String, RouteCandidates> candidates = new HashMap<>();
+
+            for (String path : paths) {
+                RouteCandidates routeCandidates = super.find(httpMethod, path);
+                routeCandidates.acceptedTypes(); // resolved in advance
+                candidates.put(path, routeCandidates);
+            }
+            staticPaths[httpMethod.ordinal()] = candidates;
+        }
+
+        for (HttpMethod filterType : new HttpMethod[] {HttpMethod.before, HttpMethod.after, HttpMethod.afterafter}) {
+            Map<String, FilterChain> chains = new HashMap<>();
+
+            for (RouteEntry entry : entries()) {
+                if (!isFilter(entry.httpMethod)) {
+                    chains.computeIfAbsent(entry.path, path -> super.filterChain(filterType, path));
+                }
+            }
+            filterChains.put(filterType, chains);
+        }
+    }
+
+    @Override
+    RouteCandidates find(HttpMethod httpMethod, String path) {
+        Map<String, RouteCandidates> candidates = staticPaths[httpMethod.ordinal()];
+
+        if (candidates == null) {
+            // nothing mapped for the http method
+            return RouteCandidates.NONE;
+        }
+
+        RouteCandidates routeCandidates = candidates.get(path);
+        return routeCandidates != null ? routeCandidates : super.find(httpMethod, path);
+    }
+
+    @Override
+    FilterChain filterChain(HttpMethod filterType, String matchUri) {
+        FilterChain filterChain = filterChains.get(filterType).get(matchUri);
+        return filterChain != null ? filterChain : super.filterChain(filterType, matchUri);
+    }
+
+    private static boolean isFilter(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.before || httpMethod == HttpMethod.after || httpMethod == HttpMethod.afterafter;
+    }
+
+}
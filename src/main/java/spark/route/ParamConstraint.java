@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.regex.Pattern;
+
+/**
+ * Constraint on the value of a route param, declared in braces after the param name, e.g. ':id{int}'.
+ * Supported constraints are 'int', 'long', 'uuid' and otherwise a regular expression, e.g. ':slug{[a-z0-9-]+}',
+ * which must match the whole value and cannot contain a '/'.
+ * Requests with a value not satisfying the constraint do not match the route.
+ *
+ * @author Per Wendel
+ */
+final class ParamConstraint {
+
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int UUID = 2;
+    private static final int REGEX = 3;
+
+    private final String declaration;
+    private final int type;
+    private final Pattern regex;
+
+    private ParamConstraint(String declaration, int type, Pattern regex) {
+        this.declaration = declaration;
+        this.type = type;
+        this.regex = regex;
+    }
+
+    /**
+     * Parses a constraint
+     *
+     * @param declaration the constraint, without the braces
+     * @return the constraint
+     * @throws java.util.regex.PatternSyntaxException if the constraint is an invalid regular expression
+     */
+    static ParamConstraint parse(String declaration) {
+        switch (declaration) {
+            case "int":
+                return new ParamConstraint(declaration, INT, null);
+            case "long":
+                return new ParamConstraint(declaration, LONG, null);
+            case "uuid":
+                return new ParamConstraint(declaration, UUID, null);
+            default:
+                return new ParamConstraint(declaration, REGEX, Pattern.compile(declaration));
+        }
+    }
+
+    /**
+     * Checks if a param value satisfies the constraint
+     *
+     * @param value the (decoded) param value
+     * @return true if the value satisfies the constraint
+     */
+    boolean test(String value) {
+        switch (type) {
+            case INT:
+                return isInteger(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case LONG:
+                return isInteger(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            case UUID:
+                return isUuid(value);
+            default:
+                return regex.matcher(value).matches();
+        }
+    }
+
+    /**
+     * @return the constraint as declared
+     */
+    String declaration() {
+        return declaration;
+    }
+
+    // accepts what Integer.parseInt and Long.parseLong accept, without the cost of an exception for a value that
+    // does not match, which is common when routes are overloaded
+    private static boolean isInteger(String value, long min, long max) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+
+        int i = 0;
+        char first = value.charAt(0);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (length == 1) {
+                return false;
+            }
+            i++;
+        }
+
+        // accumulated negatively, as the magnitude of the min value is one larger than the max value
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0 || result < multiplyLimit) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+        return true;
+    }
+
+    private static boolean isUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return declaration;
+    }
+
+}
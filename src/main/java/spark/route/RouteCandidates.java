@@ -0,0 +1,87 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The route entries matching a requested path, before content negotiation.
+ *
+ * @author Per Wendel
+ */
+final class RouteCandidates {
+
+    static final RouteCandidates NONE = new RouteCandidates(Collections.emptyList(), new String[0]);
+
+    private final List<RouteEntry> entries;
+    private final String[] segments;
+    private List<String> acceptedTypes;
+
+    /**
+     * Constructor
+     *
+     * @param entries  the matching entries, in the order they were added
+     * @param segments the segments of the requested path
+     */
+    RouteCandidates(List<RouteEntry> entries, String[] segments) {
+        this.entries = entries;
+        this.segments = segments;
+    }
+
+    /**
+     * @return the matching entries, in the order they were added
+     */
+    List<RouteEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * @return the segments of the requested path, must not be modified
+     */
+    String[] segments() {
+        return segments;
+    }
+
+    /**
+     * @return the distinct accept types of the entries, in the order the entries were added
+     */
+    List<String> acceptedTypes() {
+        if (acceptedTypes == null) {
+            acceptedTypes = getAcceptedTypes(entries);
+        }
+        return acceptedTypes;
+    }
+
+    private static List<String> getAcceptedTypes(List<RouteEntry> entries) {
+        if (entries.size() == 1) {
+            return Collections.singletonList(entries.get(0).acceptedType);
+        }
+
+        List<String> acceptedTypes = new ArrayList<>(entries.size());
+
+        for (RouteEntry routeEntry : entries) {
+            if (!acceptedTypes.contains(routeEntry.acceptedType)) {
+                acceptedTypes.add(routeEntry.acceptedType);
+            }
+        }
+
+        return acceptedTypes;
+    }
+
+}
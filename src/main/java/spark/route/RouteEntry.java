@@ -16,7 +16,9 @@
  */
 package spark.route;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import spark.utils.SparkUtils;
 
@@ -32,6 +34,15 @@ class RouteEntry {
     String acceptedType;
     Object target;
 
+    // the host (pattern) the entry is mapped for, null if mapped for all hosts
+    String host;
+
+    // the order in which the entry was added, used to keep first mapped wins semantics
+    int order;
+
+    private RoutePattern pattern;
+    private List<String> acceptedTypes;
+
     RouteEntry() {
     }
 
@@ -40,6 +51,30 @@ class RouteEntry {
         this.path = entry.path;
         this.acceptedType = entry.acceptedType;
         this.target = entry.target;
+        this.host = entry.host;
+        this.order = entry.order;
+        this.pattern = entry.pattern;
+        this.acceptedTypes = entry.acceptedTypes;
+    }
+
+    /**
+     * @return the compiled form of the path, compiled once
+     */
+    RoutePattern pattern() {
+        if (pattern == null || !pattern.path().equals(path)) {
+            pattern = RoutePattern.compile(path);
+        }
+        return pattern;
+    }
+
+    /**
+     * @return the accepted type as a list, as the content negotiation cache takes it, created once
+     */
+    List<String> acceptedTypes() {
+        if (acceptedTypes == null || !Objects.equals(acceptedTypes.get(0), acceptedType)) {
+            acceptedTypes = Collections.singletonList(acceptedType);
+        }
+        return acceptedTypes;
     }
 
     boolean matches(HttpMethod httpMethod, String path) {
@@ -51,81 +86,11 @@ class RouteEntry {
         }
         boolean match = false;
         if (this.httpMethod == httpMethod) {
-            match = matchPath(path);
+            match = pattern().matches(SparkUtils.splitPath(path), path.endsWith("/"));
         }
         return match;
     }
 
-    private boolean matchPath(String path) { // NOSONAR
-        if (!this.path.endsWith("*") && ((path.endsWith("/") && !this.path.endsWith("/")) // NOSONAR
-                || (this.path.endsWith("/") && !path.endsWith("/")))) {
-            // One and not both ends with slash
-            return false;
-        }
-        if (this.path.equals(path)) {
-            // Paths are the same
-            return true;
-        }
-
-        // check params
-        List<String> thisPathList = SparkUtils.convertRouteToList(this.path);
-        List<String> pathList = SparkUtils.convertRouteToList(path);
-
-        int thisPathSize = thisPathList.size();
-        int pathSize = pathList.size();
-
-        if (thisPathSize == pathSize) {
-            for (int i = 0; i < thisPathSize; i++) {
-                String thisPathPart = thisPathList.get(i);
-                String pathPart = pathList.get(i);
-
-                if ((i == thisPathSize - 1) && (thisPathPart.equals("*") && this.path.endsWith("*"))) {
-                    // wildcard match
-                    return true;
-                }
-
-                if ((!thisPathPart.startsWith(":"))
-                        && !thisPathPart.equals(pathPart)
-                        && !thisPathPart.equals("*")) {
-                    return false;
-                }
-            }
-            // All parts matched
-            return true;
-        } else {
-            // Number of "path parts" not the same
-            // check wild card:
-            if (this.path.endsWith("*")) {
-                if (pathSize == (thisPathSize - 1) && (path.endsWith("/"))) {
-                    // Hack for making wildcards work with trailing slash
-                    pathList.add("");
-                    pathList.add("");
-                    pathSize += 2;
-                }
-
-                if (thisPathSize < pathSize) {
-                    for (int i = 0; i < thisPathSize; i++) {
-                        String thisPathPart = thisPathList.get(i);
-                        String pathPart = pathList.get(i);
-                        if (thisPathPart.equals("*") && (i == thisPathSize - 1) && this.path.endsWith("*")) {
-                            // wildcard match
-                            return true;
-                        }
-                        if (!thisPathPart.startsWith(":")
-                                && !thisPathPart.equals(pathPart)
-                                && !thisPathPart.equals("*")) {
-                            return false;
-                        }
-                    }
-                    // All parts matched
-                    return true;
-                }
-                // End check wild card
-            }
-            return false;
-        }
-    }
-
     @Override
     public String toString() {
         return httpMethod.name() + ", " + path + ", " + target;
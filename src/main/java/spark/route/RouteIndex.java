@@ -0,0 +1,211 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spark.utils.SparkUtils;
+
+/**
+ * Segment based trie (radix tree) over the route entries. Each level of the tree corresponds to one path segment.
+ * Literal segments are looked up by hash, ':param' and '*' segments share a single wildcard child.
+ * A lookup therefore costs O(path depth) instead of O(number of routes).
+ * There is one trie per http method (and filter type) so a lookup only touches the entries of the requested method.
+ * <p>
+ * Matching semantics are the same as {@link RouteEntry#matches(HttpMethod, String)}, and matches are returned in
+ * the order the routes were added (first mapped wins).
+ *
+ * @author Per Wendel
+ */
+final class RouteIndex {
+
+    private static final Comparator<RouteEntry> BY_ORDER = Comparator.comparingInt(entry -> entry.order);
+
+    // the root of the trie per http method
+    private final Map<HttpMethod, Node> roots = new EnumMap<>(HttpMethod.class);
+
+    // filters mapped to all paths (SparkUtils.ALL_PATHS), per filter type
+    private final Map<HttpMethod, List<RouteEntry>> allPaths = new EnumMap<>(HttpMethod.class);
+
+    /**
+     * Adds an entry to the index
+     *
+     * @param entry the entry
+     */
+    void add(RouteEntry entry) {
+        if (isFilter(entry.httpMethod) && SparkUtils.ALL_PATHS.equals(entry.path)) {
+            allPaths.computeIfAbsent(entry.httpMethod, m -> new ArrayList<>()).add(entry);
+            return;
+        }
+
+        RoutePattern pattern = entry.pattern();
+
+        Node node = roots.computeIfAbsent(entry.httpMethod, m -> new Node());
+        for (int i = 0; i < pattern.size(); i++) {
+            node = pattern.isLiteral(i) ? node.literal(pattern.segment(i)) : node.wildcard();
+        }
+
+        if (pattern.wildcardTail()) {
+            node.prefixEntries().add(entry);
+        } else {
+            node.exactEntries().add(entry);
+        }
+    }
+
+    /**
+     * Finds all entries matching the http method and path
+     *
+     * @param httpMethod    the http method
+     * @param segments      the segments of the requested path
+     * @param trailingSlash if the requested path ends with a slash
+     * @return the matching entries, in the order they were added
+     */
+    List<RouteEntry> find(HttpMethod httpMethod, String[] segments, boolean trailingSlash) {
+        Node root = roots.get(httpMethod);
+        List<RouteEntry> filters = allPaths.get(httpMethod);
+
+        if (root == null && filters == null) {
+            return Collections.emptyList();
+        }
+
+        List<RouteEntry> matchSet = new ArrayList<>();
+
+        collect(filters, matchSet);
+
+        if (root != null) {
+            collect(root, 0, segments, trailingSlash, matchSet);
+        }
+
+        if (matchSet.size() > 1) {
+            matchSet.sort(BY_ORDER);
+        }
+        return matchSet;
+    }
+
+    //////////////////////////////////////////////////
+    // PRIVATE METHODS
+    //////////////////////////////////////////////////
+
+    private static void collect(Node node,
+                                int depth,
+                                String[] segments,
+                                boolean trailingSlash,
+                                List<RouteEntry> matchSet) {
+
+        if (depth == segments.length) {
+            if (node.exact != null) {
+                for (RouteEntry entry : node.exact) {
+                    // One and not both ends with slash is not a match
+                    if (entry.pattern().trailingSlash() == trailingSlash
+                            && entry.pattern().constraintsMatch(segments)) {
+                        matchSet.add(entry);
+                    }
+                }
+            }
+            collect(node.prefix, segments, matchSet);
+
+            if (trailingSlash && node.wildcard != null) {
+                // Hack for making wildcards work with trailing slash, e.g. '/foo/*' matches '/foo/'
+                collect(node.wildcard.prefix, segments, matchSet);
+            }
+            return;
+        }
+
+        // Routes ending with a wildcard match any longer path
+        collect(node.prefix, segments, matchSet);
+
+        if (node.literals != null) {
+            Node child = node.literals.get(segments[depth]);
+            if (child != null) {
+                collect(child, depth + 1, segments, trailingSlash, matchSet);
+            }
+        }
+        if (node.wildcard != null) {
+            collect(node.wildcard, depth + 1, segments, trailingSlash, matchSet);
+        }
+    }
+
+    private static void collect(List<RouteEntry> entries, List<RouteEntry> matchSet) {
+        if (entries != null) {
+            matchSet.addAll(entries);
+        }
+    }
+
+    private static void collect(List<RouteEntry> entries, String[] segments, List<RouteEntry> matchSet) {
+        if (entries != null) {
+            for (RouteEntry entry : entries) {
+                // constrained params, e.g. ':id{int}', are checked once the structure of the path has matched
+                if (entry.pattern().constraintsMatch(segments)) {
+                    matchSet.add(entry);
+                }
+            }
+        }
+    }
+
+    private static boolean isFilter(HttpMethod httpMethod) {
+        return httpMethod == HttpMethod.before || httpMethod == HttpMethod.after || httpMethod == HttpMethod.afterafter;
+    }
+
+    /**
+     * A node in the trie, ie. one path segment
+     */
+    private static final class Node {
+
+        private Map<String, Node> literals;
+        private Node wildcard;
+
+        // routes ending at this node
+        private List<RouteEntry> exact;
+        // routes ending at this node with a trailing '*'
+        private List<RouteEntry> prefix;
+
+        private Node literal(String segment) {
+            if (literals == null) {
+                literals = new HashMap<>();
+            }
+            return literals.computeIfAbsent(segment, s -> new Node());
+        }
+
+        private Node wildcard() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+
+        private List<RouteEntry> exactEntries() {
+            if (exact == null) {
+                exact = new ArrayList<>(1);
+            }
+            return exact;
+        }
+
+        private List<RouteEntry> prefixEntries() {
+            if (prefix == null) {
+                prefix = new ArrayList<>(1);
+            }
+            return prefix;
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spark.utils.SparkUtils;
+import spark.utils.urldecoding.UrlDecode;
+
+/**
+ * Immutable, pre-compiled form of a route path such as '/users/:id/files/*'.
+ * The path is parsed once when the route is mapped. Matching and the extraction of params and splat are then
+ * done against the segments of the requested path, see {@link SparkUtils#splitPath(String)}, without parsing
+ * the route path again.
+ * <p>
+ * Params can be constrained, e.g. '/users/:id{int}', see {@link ParamConstraint}. A requested path with a param
+ * value not satisfying the constraint does not match the pattern.
+ *
+ * @author Per Wendel
+ */
+public final class RoutePattern {
+
+    private static final int LITERAL = 0;
+    private static final int PARAM = 1;
+    private static final int SPLAT = 2;
+
+    private final String path;
+    private final String[] segments;
+    private final int[] kinds;
+    private final boolean trailingSlash;
+    private final boolean wildcardTail;
+    private final boolean hasParams;
+    private final boolean hasSplat;
+
+    // the constraints of the params, null if none of them are constrained
+    private final ParamConstraint[] constraints;
+
+    // the index of the segment of each param, keyed by the (lower cased) param name with and without ':'
+    private final Map<String, Integer> paramIndexes;
+
+    private RoutePattern(String path) {
+        this.path = path;
+        this.segments = SparkUtils.splitPath(path);
+        this.kinds = new int[segments.length];
+
+        boolean params = false;
+        boolean splat = false;
+        ParamConstraint[] paramConstraints = null;
+        Map<String, Integer> indexes = new HashMap<>();
+
+        for (int i = 0; i < segments.length; i++) {
+            if (SparkUtils.isParam(segments[i])) {
+                kinds[i] = PARAM;
+
+                int constraintStart = segments[i].indexOf('{');
+                int constraintEnd = segments[i].lastIndexOf('}');
+
+                if (constraintStart > 0 && constraintEnd > constraintStart) {
+                    if (paramConstraints == null) {
+                        paramConstraints = new ParamConstraint[segments.length];
+                    }
+                    paramConstraints[i] = ParamConstraint.parse(segments[i].substring(constraintStart + 1,
+                                                                                      constraintEnd));
+                    segments[i] = segments[i].substring(0, constraintStart);
+                }
+
+                segments[i] = segments[i].toLowerCase(); // NOSONAR
+                indexes.put(segments[i], i);
+                indexes.put(segments[i].substring(1), i);
+                params = true;
+            } else if (SparkUtils.isSplat(segments[i])) {
+                kinds[i] = SPLAT;
+                splat = true;
+            } else {
+                kinds[i] = LITERAL;
+            }
+        }
+
+        this.trailingSlash = path.endsWith("/");
+        this.wildcardTail = path.endsWith("*");
+        this.hasParams = params;
+        this.hasSplat = splat;
+        this.constraints = paramConstraints;
+        this.paramIndexes = indexes;
+    }
+
+    /**
+     * Compiles a route path
+     *
+     * @param path the route path
+     * @return the compiled route pattern
+     */
+    public static RoutePattern compile(String path) {
+        return new RoutePattern(path);
+    }
+
+    /**
+     * @return the route path this pattern was compiled from
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * Checks if the requested path matches this pattern.
+     *
+     * @param requestSegments the segments of the requested path
+     * @param requestTrailingSlash if the requested path ends with a slash
+     * @return true if matching
+     */
+    public boolean matches(String[] requestSegments, boolean requestTrailingSlash) {
+        if (!wildcardTail && trailingSlash != requestTrailingSlash) {
+            // One and not both ends with slash
+            return false;
+        }
+
+        int size = segments.length;
+        int requestSize = requestSegments.length;
+
+        if (requestSize == size) {
+            return segmentsMatch(requestSegments, size);
+        }
+
+        if (wildcardTail) {
+            if (requestSize > size) {
+                return segmentsMatch(requestSegments, size);
+            }
+            if (requestSize == size - 1 && requestTrailingSlash) {
+                // Hack for making wildcards work with trailing slash, e.g. '/foo/*' matches '/foo/'
+                return kinds[size - 1] != LITERAL && segmentsMatch(requestSegments, requestSize);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the route params of a matching requested path
+     *
+     * @param requestSegments the segments of the requested path
+     * @return the params keyed by their (lower cased) name, including the ':'
+     */
+    public Map<String, String> params(String[] requestSegments) {
+        if (!hasParams) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> params = new HashMap<>();
+        int size = Math.min(segments.length, requestSegments.length);
+
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == PARAM) {
+                params.put(segments[i], UrlDecode.path(requestSegments[i]));
+            }
+        }
+        return Collections.unmodifiableMap(params);
+    }
+
+    /**
+     * Gets a route param of a matching requested path
+     *
+     * @param requestSegments the segments of the requested path
+     * @param name            the name of the param, with or without the ':', not case sensitive
+     * @return the param value or null if the pattern has no such param
+     */
+    public String param(String[] requestSegments, String name) {
+        Integer index = paramIndexes.get(name);
+
+        if (index == null) {
+            index = paramIndexes.get(name.toLowerCase()); // NOSONAR
+        }
+        if (index == null || index >= requestSegments.length) {
+            return null;
+        }
+        return UrlDecode.path(requestSegments[index]);
+    }
+
+    /**
+     * Gets the splat (wildcard) parameters of a matching requested path
+     *
+     * @param requestSegments the segments of the requested path
+     * @return the splat parameters
+     */
+    public List<String> splat(String[] requestSegments) {
+        if (!hasSplat) {
+            return Collections.emptyList();
+        }
+
+        List<String> splat = new ArrayList<>();
+        int size = Math.min(segments.length, requestSegments.length);
+
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == SPLAT) {
+                String splatParam = requestSegments[i];
+
+                if (requestSegments.length != segments.length && i == segments.length - 1) {
+                    StringBuilder builder = new StringBuilder(splatParam);
+                    for (int j = i + 1; j < requestSegments.length; j++) {
+                        builder.append('/').append(requestSegments[j]);
+                    }
+                    splatParam = builder.toString();
+                }
+                try {
+                    splat.add(URLDecoder.decode(splatParam, "UTF-8"));
+                } catch (UnsupportedEncodingException e) {
+                    // UTF-8 is always supported
+                }
+            }
+        }
+        return Collections.unmodifiableList(splat);
+    }
+
+    int size() {
+        return segments.length;
+    }
+
+    String segment(int index) {
+        return segments[index];
+    }
+
+    boolean isLiteral(int index) {
+        return kinds[index] == LITERAL;
+    }
+
+    boolean trailingSlash() {
+        return trailingSlash;
+    }
+
+    boolean wildcardTail() {
+        return wildcardTail;
+    }
+
+    /**
+     * @return true if the pattern has no params or wildcards, ie. it only matches its own path
+     */
+    boolean isStatic() {
+        return !hasParams && !hasSplat && !wildcardTail;
+    }
+
+    /**
+     * Checks the constraints of the params, the literal segments are not checked
+     *
+     * @param requestSegments the segments of the requested path
+     * @return true if the param values satisfy the constraints
+     */
+    boolean constraintsMatch(String[] requestSegments) {
+        if (constraints == null) {
+            return true;
+        }
+
+        int size = Math.min(segments.length, requestSegments.length);
+
+        for (int i = 0; i < size; i++) {
+            if (constraints[i] != null && !constraints[i].test(decode(requestSegments[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if this pattern matches every path that the other pattern matches.
+     * Returning false does not mean that the patterns never match the same path.
+     *
+     * @param other the other pattern
+     * @return true if all paths matched by other are also matched by this pattern
+     */
+    boolean covers(RoutePattern other) {
+        if (path.equals(other.path)) {
+            return true;
+        }
+
+        int size = segments.length;
+
+        if (wildcardTail) {
+            // the other pattern might match paths one segment shorter than itself, see the trailing slash hack
+            boolean otherMatchesShorter = other.wildcardTail && other.size() > 0 && !other.isLiteral(other.size() - 1);
+            int otherMinSize = otherMatchesShorter ? other.size() - 1 : other.size();
+
+            if (size > otherMinSize) {
+                return false;
+            }
+        } else if (other.wildcardTail || size != other.size() || trailingSlash != other.trailingSlash) {
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == LITERAL && !(other.isLiteral(i) && segments[i].equals(other.segment(i)))) {
+                return false;
+            }
+            if (constraints != null && constraints[i] != null) {
+                // not all values are matched
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if this pattern and the other pattern can never match the same path.
+     * Returning false does not mean that the patterns match the same paths.
+     *
+     * @param other the other pattern
+     * @return true if no path is matched by both patterns
+     */
+    boolean excludes(RoutePattern other) {
+        if (!wildcardTail && !other.wildcardTail
+                && (segments.length != other.size() || trailingSlash != other.trailingSlash)) {
+            return true;
+        }
+
+        int size = Math.min(segments.length, other.size());
+
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == LITERAL && other.isLiteral(i) && !segments[i].equals(other.segment(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean segmentsMatch(String[] requestSegments, int count) {
+        for (int i = 0; i < count; i++) {
+            if (kinds[i] == LITERAL && !segments[i].equals(requestSegments[i])) {
+                return false;
+            }
+        }
+        return constraintsMatch(requestSegments);
+    }
+
+    private static String decode(String segment) {
+        return segment.indexOf('%') >= 0 ? UrlDecode.path(segment) : segment;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import spark.utils.SparkUtils;
+
+/**
+ * Immutable snapshot of the mapped routes together with the index built over them.
+ * A new snapshot is built for every change and published by {@link Routes}, requests are matched against
+ * whichever snapshot is current without any locking. The filter chains are derived from the routes of the snapshot
+ * and are resolved lazily, once per matched route.
+ * <p>
+ * The paths of routes without params or wildcards, e.g. '/health', are detected when the snapshot is built and
+ * the matches of a request to such a path are kept in a hash map per http method, so after the first request a
+ * match is a single lookup. The trailing slash is part of the path, '/health/' is matched by the trie.
+ * Paths that matched no route are kept in a bounded cache, see {@link UnmatchedPaths}.
+ * <p>
+ * Routes mapped for a host, see {@link #forHost(String)}, are kept in a table per host (pattern) together with the
+ * routes mapped for all hosts. This table then only matches the routes mapped for all hosts.
+ *
+ * @author Per Wendel
+ */
+class RouteTable {
+
+    private final List<RouteEntry> entries;
+
+    // the entries matched by this table, ie. without the entries mapped for a specific host
+    private final List<RouteEntry> indexed;
+    private final RouteIndex index;
+
+    // the tables per host and per wildcard host suffix (e.g. '.example.com'), null if no route is mapped for a host
+    private final Map<String, RouteTable> hosts;
+    private final Map<String, RouteTable> wildcardHosts;
+
+    // the paths of the routes without params or wildcards, per http method
+    private final Map<HttpMethod, StaticPaths> staticPaths = new EnumMap<>(HttpMethod.class);
+
+    private final UnmatchedPaths unmatchedPaths;
+
+    // filter chains per filter type, keyed by the path of the matched route
+    private final Map<HttpMethod, Map<String, FilterChain>> filterChains = new EnumMap<>(HttpMethod.class);
+
+    /**
+     * Constructor
+     *
+     * @param entries the route entries, in the order they were added
+     */
+    RouteTable(List<RouteEntry> entries) {
+        this(entries, new UnmatchedPaths(), RouteTable::new);
+    }
+
+    private RouteTable(List<RouteEntry> entries, UnmatchedPaths unmatchedPaths) {
+        this(entries, unmatchedPaths, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param entries        the route entries, in the order they were added
+     * @param unmatchedPaths the cache of the paths that matched no route
+     * @param hostTables     creates the table of a host from its entries and the cache of its unmatched paths,
+     *                       null if this is the table of a host
+     */
+    RouteTable(List<RouteEntry> entries,
+               UnmatchedPaths unmatchedPaths,
+               BiFunction<List<RouteEntry>, UnmatchedPaths, RouteTable> hostTables) {
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.unmatchedPaths = unmatchedPaths;
+        boolean byHost = hostTables != null;
+
+        Map<String, List<RouteEntry>> hostEntries = new LinkedHashMap<>();
+        List<RouteEntry> allHosts = new ArrayList<>();
+
+        for (RouteEntry entry : this.entries) {
+            if (byHost && entry.host != null) {
+                hostEntries.computeIfAbsent(entry.host, h -> new ArrayList<>());
+            } else {
+                allHosts.add(entry);
+            }
+        }
+
+        if (hostEntries.isEmpty()) {
+            this.indexed = this.entries;
+            this.hosts = null;
+            this.wildcardHosts = null;
+        } else {
+            this.indexed = Collections.unmodifiableList(allHosts);
+            this.hosts = new HashMap<>();
+            this.wildcardHosts = new HashMap<>();
+
+            for (Map.Entry<String, List<RouteEntry>> host : hostEntries.entrySet()) {
+                // the routes of the host together with the routes of all hosts, in the order they were added
+                for (RouteEntry entry : this.entries) {
+                    if (entry.host == null || entry.host.equals(host.getKey())) {
+                        host.getValue().add(entry);
+                    }
+                }
+
+                RouteTable table = hostTables.apply(host.getValue(), unmatchedPaths.forHost());
+                if (host.getKey().startsWith("*.")) {
+                    wildcardHosts.put(host.getKey().substring(1), table);
+                } else {
+                    hosts.put(host.getKey(), table);
+                }
+            }
+        }
+
+        this.index = new RouteIndex();
+
+        for (RouteEntry entry : indexed) {
+            index.add(entry);
+
+            if (entry.pattern().isStatic() && !SparkUtils.ALL_PATHS.equals(entry.path)) {
+                staticPaths.computeIfAbsent(entry.httpMethod, m -> new StaticPaths()).paths.add(entry.path);
+            }
+        }
+
+        filterChains.put(HttpMethod.before, new ConcurrentHashMap<>());
+        filterChains.put(HttpMethod.after, new ConcurrentHashMap<>());
+        filterChains.put(HttpMethod.afterafter, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return the route entries, in the order they were added
+     */
+    List<RouteEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Gets the table matching the routes of a host. An exact host pattern is preferred over a wildcard one and a
+     * longer wildcard suffix over a shorter one.
+     *
+     * @param host the host (without port) the request was sent to, null if unknown
+     * @return the table of the host or this table if no routes are mapped for the host
+     */
+    RouteTable forHost(String host) {
+        if (hosts == null || host == null) {
+            return this;
+        }
+
+        String name = host.toLowerCase(Locale.ROOT);
+        RouteTable table = hosts.get(name);
+
+        if (table != null) {
+            return table;
+        }
+        for (int i = name.indexOf('.'); i >= 0; i = name.indexOf('.', i + 1)) {
+            table = wildcardHosts.get(name.substring(i));
+            if (table != null) {
+                return table;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Finds all entries matching the http method and path
+     *
+     * @param httpMethod the http method
+     * @param path       the requested path
+     * @return the matching entries
+     */
+    RouteCandidates find(HttpMethod httpMethod, String path) {
+        StaticPaths statics = staticPaths.get(httpMethod);
+
+        if (statics != null) {
+            RouteCandidates candidates = statics.resolved.get(path);
+            if (candidates != null) {
+                return candidates;
+            }
+            if (statics.paths.contains(path)) {
+                return statics.resolve(index, httpMethod, path);
+            }
+        }
+
+        if (unmatchedPaths.contains(httpMethod, path)) {
+            return RouteCandidates.NONE;
+        }
+
+        RouteCandidates candidates = find(index, httpMethod, path);
+
+        if (candidates.entries().isEmpty()) {
+            unmatchedPaths.add(httpMethod, path);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the cache of the paths that matched no route, sharing its counters with the tables per host
+     */
+    UnmatchedPaths unmatchedPaths() {
+        return unmatchedPaths;
+    }
+
+
+    /**
+     * Gets the filter chain of a route, resolved on first use
+     *
+     * @param filterType the filter type, ie. before, after or afterafter
+     * @param matchUri   the path of the matched route
+     * @return the filter chain
+     */
+    FilterChain filterChain(HttpMethod filterType, String matchUri) {
+        return filterChains.get(filterType).computeIfAbsent(
+                matchUri,
+                path -> FilterChain.resolve(filterType, RoutePattern.compile(path), indexed));
+    }
+
+    private static RouteCandidates find(RouteIndex index, HttpMethod httpMethod, String path) {
+        String[] segments = SparkUtils.splitPath(path);
+        return new RouteCandidates(index.find(httpMethod, segments, path.endsWith("/")), segments);
+    }
+
+    /**
+     * The static paths of one http method and their matches, resolved on first use
+     */
+    private static final class StaticPaths {
+
+        private final Set<String> paths = new HashSet<>();
+        private final Map<String, RouteCandidates> resolved = new ConcurrentHashMap<>();
+
+        private RouteCandidates resolve(RouteIndex index, HttpMethod httpMethod, String path) {
+            RouteCandidates candidates = find(index, httpMethod, path);
+            candidates.acceptedTypes(); // resolved before the candidates are shared
+            RouteCandidates previous = resolved.putIfAbsent(path, candidates);
+            return previous != null ? previous : candidates;
+        }
+    }
+
+}
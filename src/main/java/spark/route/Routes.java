@@ -17,10 +17,10 @@
 package spark.route;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 import spark.FilterImpl;
 import spark.RouteImpl;
@@ -31,6 +31,11 @@ import spark.utils.StringUtils;
 /**
  * Holds the routes and performs matching from HTTP requests to routes.
  * Works as Sinatra's, ie. if there are more than one match the one that was mapped first is chosen.
+ * <p>
+ * The routes are kept in an immutable snapshot published through a volatile reference. Changes copy the current
+ * snapshot and publish a new one, so requests are matched without locking while routes are added or removed.
+ * Several changes can be published at once with {@link #update(Consumer)}. Once all routes have been mapped they
+ * can be frozen, see {@link #freeze()}.
  *
  * @author Per Wendel
  */
@@ -39,7 +44,16 @@ public class Routes {
     private static final org.slf4j.Logger LOG = org.slf4j.LoggerFactory.getLogger(Routes.class);
     private static final char SINGLE_QUOTE = '\'';
 
-    private List<RouteEntry> routes;
+    // an Accept header accepting every type, the routes then match without content negotiation
+    private static final String ANY_TYPE = "*/*";
+
+    private volatile RouteTable table = new RouteTable(Collections.emptyList());
+    private volatile boolean frozen;
+
+    // guarded by this
+    private int order;
+
+    private final ContentNegotiationCache contentNegotiationCache = new ContentNegotiationCache();
 
     public static Routes create() {
         return new Routes();
@@ -49,7 +63,6 @@ public class Routes {
      * Constructor
      */
     protected Routes() {
-        routes = new ArrayList<>();
     }
 
     /**
@@ -59,7 +72,7 @@ public class Routes {
      * @param route      the route to add
      */
     public void add(HttpMethod httpMethod, RouteImpl route) {
-        add(httpMethod, route.getPath() , route.getAcceptType(), route);
+        update(batch -> batch.add(httpMethod, route));
     }
 
     /**
@@ -69,7 +82,78 @@ public class Routes {
      * @param filter     the filter to add
      */
     public void add(HttpMethod httpMethod, FilterImpl filter) {
-        add(httpMethod, filter.getPath() , filter.getAcceptType(), filter);
+        update(batch -> batch.add(httpMethod, filter));
+    }
+
+    /**
+     * Add a route for a host
+     *
+     * @param httpMethod the http-method of the route
+     * @param host       the host, e.g. 'api.example.com', or wildcard subdomain, e.g. '*.example.com'.
+     *                   null for all hosts
+     * @param route      the route to add
+     */
+    public void add(HttpMethod httpMethod, String host, RouteImpl route) {
+        update(batch -> batch.add(httpMethod, host, route));
+    }
+
+    /**
+     * Add a filter for a host
+     *
+     * @param httpMethod the http-method of the route
+     * @param host       the host, e.g. 'api.example.com', or wildcard subdomain, e.g. '*.example.com'.
+     *                   null for all hosts
+     * @param filter     the filter to add
+     */
+    public void add(HttpMethod httpMethod, String host, FilterImpl filter) {
+        update(batch -> batch.add(httpMethod, host, filter));
+    }
+
+    /**
+     * Applies several changes at once. The changes are made to a copy of the current routes which is published
+     * when all of them have been made, requests are routed either with none or with all of the changes.
+     * The batch must not be used after this method has returned.
+     *
+     * @param changes the changes to apply
+     */
+    public void update(Consumer<Batch> changes) {
+        synchronized (this) {
+            if (frozen) {
+                throw new IllegalStateException("The routes have been frozen and can no longer be changed");
+            }
+
+            Batch batch = new Batch(table.entries());
+            try {
+                changes.accept(batch);
+            } finally {
+                batch.closed = true;
+            }
+            if (batch.changed) {
+                table = new RouteTable(batch.entries);
+            }
+        }
+    }
+
+    /**
+     * Freezes the routes. The routes are compiled for dispatching, with the matches of the routes without params
+     * or wildcards, their accept types and the filter chains of all routes resolved in advance. The routes mapped
+     * for a host are compiled the same way.
+     * Any change to the routes afterwards throws an {@link IllegalStateException}, except {@link #clear()}.
+     */
+    public void freeze() {
+        synchronized (this) {
+            if (!frozen) {
+                table = new FrozenRouteTable(table.entries());
+                frozen = true;
+            }
+        }
+    }
+
+    /**
+     * @return true if the routes have been frozen
+     */
+    public boolean isFrozen() {
+        return frozen;
     }
 
     /**
@@ -81,9 +165,22 @@ public class Routes {
      * @return the target
      */
     public RouteMatch find(HttpMethod httpMethod, String path, String acceptType) {
-        List<RouteEntry> routeEntries = this.findTargetsForRequestedRoute(httpMethod, path);
-        RouteEntry entry = findTargetWithGivenAcceptType(routeEntries, acceptType);
-        return entry != null ? new RouteMatch(entry.target, entry.path, path, acceptType, httpMethod) : null;
+        return find(httpMethod, null, path, acceptType);
+    }
+
+    /**
+     * finds target for a requested route, among the routes mapped for the host and for all hosts
+     *
+     * @param httpMethod the http method
+     * @param host       the host the request was sent to, null if unknown
+     * @param path       the path
+     * @param acceptType the accept type
+     * @return the target
+     */
+    public RouteMatch find(HttpMethod httpMethod, String host, String path, String acceptType) {
+        RouteCandidates candidates = table.forHost(host).find(httpMethod, path);
+        RouteEntry entry = findTargetWithGivenAcceptType(candidates, acceptType);
+        return entry != null ? createMatch(entry, path, candidates.segments(), acceptType, httpMethod) : null;
     }
 
     /**
@@ -95,22 +192,64 @@ public class Routes {
      * @return the targets
      */
     public List<RouteMatch> findMultiple(HttpMethod httpMethod, String path, String acceptType) {
-        List<RouteMatch> matchSet = new ArrayList<>();
-        List<RouteEntry> routeEntries = findTargetsForRequestedRoute(httpMethod, path);
+        return findMultiple(httpMethod, null, path, acceptType);
+    }
 
-        for (RouteEntry routeEntry : routeEntries) {
-            if (acceptType != null) {
-                String bestMatch = MimeParse.bestMatch(Arrays.asList(routeEntry.acceptedType), acceptType);
+    /**
+     * Finds multiple targets for a requested route, among the routes mapped for the host and for all hosts
+     *
+     * @param httpMethod the http method
+     * @param host       the host the request was sent to, null if unknown
+     * @param path       the route path
+     * @param acceptType the accept type
+     * @return the targets
+     */
+    public List<RouteMatch> findMultiple(HttpMethod httpMethod, String host, String path, String acceptType) {
+        RouteCandidates candidates = table.forHost(host).find(httpMethod, path);
 
-                if (routeWithGivenAcceptType(bestMatch)) {
-                    matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType, httpMethod));
-                }
-            } else {
-                matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, path, acceptType, httpMethod));
-            }
+        return createMatches(candidates.entries(), httpMethod, path, candidates.segments(), acceptType);
+    }
+
+    /**
+     * Finds the filters of the given type for a request. If the request has matched a route the filters are taken
+     * from the filter chain resolved (once) for that route, otherwise they are searched for in the index.
+     *
+     * @param filterType the filter type, ie. before, after or afterafter
+     * @param routeMatch the route matched by the request, null if none
+     * @param path       the route path
+     * @param acceptType the accept type
+     * @return the filters
+     */
+    public List<RouteMatch> findFilters(HttpMethod filterType, RouteMatch routeMatch, String path, String acceptType) {
+        return findFilters(filterType, null, routeMatch, path, acceptType);
+    }
+
+    /**
+     * Finds the filters of the given type for a request, among the filters mapped for the host and for all hosts.
+     * See {@link #findFilters(HttpMethod, RouteMatch, String, String)}.
+     *
+     * @param filterType the filter type, ie. before, after or afterafter
+     * @param host       the host the request was sent to, null if unknown
+     * @param routeMatch the route matched by the request, null if none
+     * @param path       the route path
+     * @param acceptType the accept type
+     * @return the filters
+     */
+    public List<RouteMatch> findFilters(HttpMethod filterType,
+                                        String host,
+                                        RouteMatch routeMatch,
+                                        String path,
+                                        String acceptType) {
+        if (routeMatch == null) {
+            return findMultiple(filterType, host, path, acceptType);
         }
 
-        return matchSet;
+        FilterChain filterChain = table.forHost(host).filterChain(filterType, routeMatch.getMatchUri());
+
+        String[] segments = routeMatch.getRequestSegments();
+        List<RouteEntry> routeEntries = filterChain.find(segments, path.endsWith("/"));
+
+        return createMatches(routeEntries, filterType, path, segments, acceptType);
     }
 
     /**
@@ -118,7 +257,7 @@ public class Routes {
      */
     public List<RouteMatch> findAll() {
         List<RouteMatch> matchSet = new ArrayList<>();
-        List<RouteEntry> routeEntries = routes;
+        List<RouteEntry> routeEntries = table.entries();
 
         for (RouteEntry routeEntry : routeEntries) {
             matchSet.add(new RouteMatch(routeEntry.target, routeEntry.path, "ALL_ROUTES", routeEntry.acceptedType, routeEntry.httpMethod));
@@ -128,10 +267,28 @@ public class Routes {
     }
 
     /**
-     * ¨Clear all routes
+     * @return the cache of the paths that matched no route, counting the paths and hits of the tables of all hosts.
+     * Replaced when the routes change.
+     */
+    public UnmatchedPaths unmatchedPaths() {
+        return table.unmatchedPaths();
+    }
+
+    /**
+     * @return the cache of content negotiation results, with hit and miss counters
+     */
+    public ContentNegotiationCache contentNegotiationCache() {
+        return contentNegotiationCache;
+    }
+
+    /**
+     * ¨Clear all routes, frozen routes are unfrozen
      */
     public void clear() {
-        routes.clear();
+        synchronized (this) {
+            table = new RouteTable(Collections.emptyList());
+            frozen = false;
+        }
     }
 
     /**
@@ -182,55 +339,61 @@ public class Routes {
     // PRIVATE METHODS
     //////////////////////////////////////////////////
 
-    private void add(HttpMethod method, String url, String acceptedType, Object target) {
-        RouteEntry entry = new RouteEntry();
-        entry.httpMethod = method;
-        entry.path = url;
-        entry.target = target;
-        entry.acceptedType = acceptedType;
-        LOG.debug("Adds route: " + entry);
-        // Adds to end of list
-        routes.add(entry);
-    }
-
-    //can be cached? I don't think so.
-    private Map<String, RouteEntry> getAcceptedMimeTypes(List<RouteEntry> routes) {
-        Map<String, RouteEntry> acceptedTypes = new HashMap<>();
-
-        for (RouteEntry routeEntry : routes) {
-            if (!acceptedTypes.containsKey(routeEntry.acceptedType)) {
-                acceptedTypes.put(routeEntry.acceptedType, routeEntry);
-            }
-        }
-
-        return acceptedTypes;
+    private boolean removeRoute(HttpMethod httpMethod, String path) {
+        boolean[] removed = new boolean[1];
+        update(batch -> removed[0] = batch.removeRoute(httpMethod, path));
+        return removed[0];
     }
 
     private boolean routeWithGivenAcceptType(String bestMatch) {
         return !MimeParse.NO_MIME_TYPE.equals(bestMatch);
     }
 
-    private List<RouteEntry> findTargetsForRequestedRoute(HttpMethod httpMethod, String path) {
-        List<RouteEntry> matchSet = new ArrayList<RouteEntry>();
-        for (RouteEntry entry : routes) {
-            if (entry.matches(httpMethod, path)) {
-                matchSet.add(entry);
+    private List<RouteMatch> createMatches(List<RouteEntry> routeEntries,
+                                           HttpMethod httpMethod,
+                                           String path,
+                                           String[] segments,
+                                           String acceptType) {
+        List<RouteMatch> matchSet = new ArrayList<>();
+
+        for (RouteEntry routeEntry : routeEntries) {
+            if (acceptType != null && !ANY_TYPE.equals(acceptType)) {
+                String bestMatch = contentNegotiationCache.bestMatch(routeEntry.acceptedTypes(), acceptType);
+
+                if (routeWithGivenAcceptType(bestMatch)) {
+                    matchSet.add(createMatch(routeEntry, path, segments, acceptType, httpMethod));
+                }
+            } else {
+                matchSet.add(createMatch(routeEntry, path, segments, acceptType, httpMethod));
             }
         }
+
         return matchSet;
     }
 
-    // TODO: I believe this feature has impacted performance. Optimization?
-    private RouteEntry findTargetWithGivenAcceptType(List<RouteEntry> routeMatches, String acceptType) {
+    private static RouteMatch createMatch(RouteEntry entry,
+                                          String path,
+                                          String[] segments,
+                                          String acceptType,
+                                          HttpMethod httpMethod) {
+        return new RouteMatch(entry.target, entry.pattern(), path, segments, acceptType, httpMethod);
+    }
+
+    private RouteEntry findTargetWithGivenAcceptType(RouteCandidates candidates, String acceptType) {
+        List<RouteEntry> routeMatches = candidates.entries();
+
         if (acceptType != null && routeMatches.size() > 0) {
-            Map<String, RouteEntry> acceptedMimeTypes = getAcceptedMimeTypes(routeMatches);
-            String bestMatch = MimeParse.bestMatch(acceptedMimeTypes.keySet(), acceptType);
+            String bestMatch = contentNegotiationCache.bestMatch(candidates.acceptedTypes(), acceptType);
 
             if (routeWithGivenAcceptType(bestMatch)) {
-                return acceptedMimeTypes.get(bestMatch);
-            } else {
-                return null;
+                // the first mapped route with the best matching accept type
+                for (RouteEntry routeEntry : routeMatches) {
+                    if (bestMatch.equals(routeEntry.acceptedType)) {
+                        return routeEntry;
+                    }
+                }
             }
+            return null;
         } else {
             if (routeMatches.size() > 0) {
                 return routeMatches.get(0);
@@ -240,27 +403,6 @@ public class Routes {
         return null;
     }
 
-    private boolean removeRoute(HttpMethod httpMethod, String path) {
-        List<RouteEntry> forRemoval = new ArrayList<>();
-
-        for (RouteEntry routeEntry : routes) {
-            HttpMethod httpMethodToMatch = httpMethod;
-
-            if (httpMethod == null) {
-                // Use the routeEntry's HTTP method if none was given, so that only path is used to match.
-                httpMethodToMatch = routeEntry.httpMethod;
-            }
-
-            if (routeEntry.matches(httpMethodToMatch, path)) {
-                LOG.debug("Removing path {}", path, httpMethod == null ? "" : " with HTTP method " + httpMethod);
-
-                forRemoval.add(routeEntry);
-            }
-        }
-
-        return routes.removeAll(forRemoval);
-    }
-
     /**
      * Parse and validates a route and adds it
      *
@@ -270,26 +412,200 @@ public class Routes {
      */
     @Deprecated
     public void add(String route, String acceptType, Object target) {
-        try {
-            int singleQuoteIndex = route.indexOf(SINGLE_QUOTE);
-            String httpMethod = route.substring(0, singleQuoteIndex).trim().toLowerCase(); // NOSONAR
-            String url = route.substring(singleQuoteIndex + 1, route.length() - 1).trim(); // NOSONAR
+        update(batch -> batch.add(route, acceptType, target));
+    }
+
+    /**
+     * Changes to the routes that are published at once, see {@link Routes#update(Consumer)}
+     */
+    public final class Batch {
+
+        private final List<RouteEntry> entries;
+        private boolean changed;
+        private boolean closed;
+
+        private Batch(List<RouteEntry> entries) {
+            this.entries = new ArrayList<>(entries);
+        }
+
+        /**
+         * Add a route
+         *
+         * @param httpMethod the http-method of the route
+         * @param route      the route to add
+         */
+        public void add(HttpMethod httpMethod, RouteImpl route) {
+            add(httpMethod, null, route);
+        }
+
+        /**
+         * Add a filter
+         *
+         * @param httpMethod the http-method of the route
+         * @param filter     the filter to add
+         */
+        public void add(HttpMethod httpMethod, FilterImpl filter) {
+            add(httpMethod, null, filter);
+        }
+
+        /**
+         * Add a route for a host, see {@link Routes#add(HttpMethod, String, RouteImpl)}
+         *
+         * @param httpMethod the http-method of the route
+         * @param host       the host or wildcard subdomain, null for all hosts
+         * @param route      the route to add
+         */
+        public void add(HttpMethod httpMethod, String host, RouteImpl route) {
+            add(httpMethod, host, route.getPath(), route.getAcceptType(), route);
+        }
+
+        /**
+         * Add a filter for a host, see {@link Routes#add(HttpMethod, String, FilterImpl)}
+         *
+         * @param httpMethod the http-method of the route
+         * @param host       the host or wildcard subdomain, null for all hosts
+         * @param filter     the filter to add
+         */
+        public void add(HttpMethod httpMethod, String host, FilterImpl filter) {
+            add(httpMethod, host, filter.getPath(), filter.getAcceptType(), filter);
+        }
+
+        /**
+         * Parse and validates a route and adds it
+         *
+         * @param route      the route path
+         * @param acceptType the accept type
+         * @param target     the invocation target
+         */
+        @Deprecated
+        public void add(String route, String acceptType, Object target) {
+            checkNotClosed();
 
-            // Use special enum stuff to get from value
-            HttpMethod method;
             try {
-                method = HttpMethod.valueOf(httpMethod);
-            } catch (IllegalArgumentException e) {
-                LOG.error("The @Route value: "
-                              + route
-                              + " has an invalid HTTP method part: "
-                              + httpMethod
-                              + ".");
-                return;
+                int singleQuoteIndex = route.indexOf(SINGLE_QUOTE);
+                String httpMethod = route.substring(0, singleQuoteIndex).trim().toLowerCase(); // NOSONAR
+                String url = route.substring(singleQuoteIndex + 1, route.length() - 1).trim(); // NOSONAR
+
+                // Use special enum stuff to get from value
+                HttpMethod method;
+                try {
+                    method = HttpMethod.valueOf(httpMethod);
+                } catch (IllegalArgumentException e) {
+                    LOG.error("The @Route value: "
+                                  + route
+                                  + " has an invalid HTTP method part: "
+                                  + httpMethod
+                                  + ".");
+                    return;
+                }
+                add(method, null, url, acceptType, target);
+            } catch (Exception e) {
+                LOG.error("The @Route value: " + route + " is not in the correct format", e);
+            }
+        }
+
+        /**
+         * Removes the routes matching the path and HTTP method, see {@link Routes#remove(String, String)}
+         *
+         * @param path       the route path
+         * @param httpMethod the http method
+         * @return <tt>true</tt> if this a matching route has been previously routed
+         */
+        public boolean remove(String path, String httpMethod) {
+            if (StringUtils.isEmpty(path)) {
+                throw new IllegalArgumentException("path cannot be null or blank");
+            }
+
+            if (StringUtils.isEmpty(httpMethod)) {
+                throw new IllegalArgumentException("httpMethod cannot be null or blank");
+            }
+
+            return removeRoute(HttpMethod.valueOf(httpMethod), path);
+        }
+
+        /**
+         * Removes the routes matching the path, see {@link Routes#remove(String)}
+         *
+         * @param path the route path
+         * @return <tt>true</tt> if this a matching route has been previously routed
+         */
+        public boolean remove(String path) {
+            if (StringUtils.isEmpty(path)) {
+                throw new IllegalArgumentException("path cannot be null or blank");
+            }
+
+            return removeRoute(null, path);
+        }
+
+        /**
+         * Removes all routes
+         */
+        public void clear() {
+            checkNotClosed();
+            changed |= !entries.isEmpty();
+            entries.clear();
+        }
+
+        private void add(HttpMethod method, String host, String url, String acceptedType, Object target) {
+            checkNotClosed();
+
+            RouteEntry entry = new RouteEntry();
+            entry.httpMethod = method;
+            entry.path = url;
+            entry.target = target;
+            entry.acceptedType = acceptedType;
+            entry.host = normalizeHost(host);
+            entry.order = order++;
+            entry.pattern(); // compiled once, when mapped
+            LOG.debug("Adds route: " + entry);
+            // Adds to end of list
+            entries.add(entry);
+            changed = true;
+        }
+
+        private boolean removeRoute(HttpMethod httpMethod, String path) {
+            checkNotClosed();
+
+            List<RouteEntry> forRemoval = new ArrayList<>();
+
+            for (RouteEntry routeEntry : entries) {
+                HttpMethod httpMethodToMatch = httpMethod;
+
+                if (httpMethod == null) {
+                    // Use the routeEntry's HTTP method if none was given, so that only path is used to match.
+                    httpMethodToMatch = routeEntry.httpMethod;
+                }
+
+                if (routeEntry.matches(httpMethodToMatch, path)
+                        || (routeEntry.httpMethod == httpMethodToMatch && routeEntry.path.equals(path))) {
+                    LOG.debug("Removing path {}", path, httpMethod == null ? "" : " with HTTP method " + httpMethod);
+
+                    forRemoval.add(routeEntry);
+                }
+            }
+
+            boolean removed = entries.removeAll(forRemoval);
+            changed |= removed;
+            return removed;
+        }
+
+        private String normalizeHost(String host) {
+            if (host == null) {
+                return null;
+            }
+            boolean wildcard = host.startsWith("*.");
+
+            if (host.length() == (wildcard ? 2 : 0) || host.indexOf('*', wildcard ? 1 : 0) >= 0) {
+                throw new IllegalArgumentException(
+                        "Invalid host '" + host + "', expected e.g. 'api.example.com' or '*.example.com'");
+            }
+            return host.toLowerCase(Locale.ROOT);
+        }
+
+        private void checkNotClosed() {
+            if (closed) {
+                throw new IllegalStateException("The batch has already been applied");
             }
-            add(method, url, acceptType, target);
-        } catch (Exception e) {
-            LOG.error("The @Route value: " + route + " is not in the correct format", e);
         }
     }
 }
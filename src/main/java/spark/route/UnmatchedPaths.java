@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.route;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the (http method, path) pairs that matched no route, e.g. bots probing for '/wp-admin' or
+ * '/.env'. Repeated requests are then answered without searching the index. The cache belongs to one route table
+ * so it is invalidated whenever the routes change.
+ * <p>
+ * The cache has a budget of bytes, estimated from the length of the paths. The tables per host have caches of their
+ * own, with the same budget, but share the counters, see {@link #forHost()}. Paths longer than
+ * {@value #MAX_PATH_LENGTH} chars are not cached. When the budget is exceeded paths are evicted one at a time, in
+ * clock order: a path is only evicted if it has not been looked up since the clock hand last passed it.
+ *
+ * @author Per Wendel
+ */
+public final class UnmatchedPaths {
+
+    static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    static final int MAX_PATH_LENGTH = 512;
+
+    // estimated bytes of a cached path besides its chars, ie. the map node, the entry and the string
+    private static final int ENTRY_BYTES = 96;
+
+    private final Map<String, Entry> paths = new ConcurrentHashMap<>();
+    private final long maxBytes;
+
+    // the bytes of the cached paths and the clock hand, guarded by this
+    private long bytes;
+    private Iterator<Entry> hand;
+
+    private final Counters counters;
+
+    UnmatchedPaths() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    UnmatchedPaths(long maxBytes) {
+        this(maxBytes, new Counters());
+    }
+
+    private UnmatchedPaths(long maxBytes, Counters counters) {
+        this.maxBytes = maxBytes;
+        this.counters = counters;
+    }
+
+    /**
+     * Creates the cache of the table of a host, with the same budget, sharing the counters of this cache
+     *
+     * @return the cache
+     */
+    UnmatchedPaths forHost() {
+        return new UnmatchedPaths(maxBytes, counters);
+    }
+
+    /**
+     * @param httpMethod the http method
+     * @param path       the requested path
+     * @return true if the path is known to match no route for the http method
+     */
+    boolean contains(HttpMethod httpMethod, String path) {
+        Entry entry = paths.get(path);
+
+        if (entry != null && (entry.methods & bit(httpMethod)) != 0) {
+            entry.referenced = true;
+            counters.hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a path that matched no route for the http method
+     *
+     * @param httpMethod the http method
+     * @param path       the requested path
+     */
+    synchronized void add(HttpMethod httpMethod, String path) {
+        Entry entry = paths.get(path);
+
+        if (entry != null) {
+            entry.methods |= bit(httpMethod);
+            return;
+        }
+        if (path.length() > MAX_PATH_LENGTH) {
+            return;
+        }
+
+        long pathBytes = bytes(path);
+        while (bytes + pathBytes > maxBytes) {
+            if (!evict()) {
+                return;
+            }
+        }
+
+        paths.put(path, new Entry(path, bit(httpMethod)));
+        bytes += pathBytes;
+        counters.bytes.addAndGet(pathBytes);
+        counters.size.incrementAndGet();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache, by the tables of all hosts
+     */
+    public long hitCount() {
+        return counters.hits.sum();
+    }
+
+    /**
+     * @return the (approximate) number of cached paths, of the tables of all hosts
+     */
+    public int size() {
+        return counters.size.get();
+    }
+
+    /**
+     * @return the (estimated) bytes of the cached paths, of the tables of all hosts
+     */
+    public long bytes() {
+        return counters.bytes.get();
+    }
+
+    // evicts the first path not looked up since the hand passed it, or the next one once all paths have been passed
+    private boolean evict() {
+        int size = paths.size();
+
+        for (int visited = 0; size > 0; visited++) {
+            if (hand == null || !hand.hasNext()) {
+                hand = paths.values().iterator();
+                if (!hand.hasNext()) {
+                    return false;
+                }
+            }
+
+            Entry entry = hand.next();
+            if (entry.referenced && visited < size) {
+                entry.referenced = false;
+                continue;
+            }
+
+            hand.remove();
+            bytes -= bytes(entry.path);
+            counters.bytes.addAndGet(-bytes(entry.path));
+            counters.size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static long bytes(String path) {
+        return ENTRY_BYTES + 2L * path.length();
+    }
+
+    private static int bit(HttpMethod httpMethod) {
+        return 1 << httpMethod.ordinal();
+    }
+
+    /**
+     * A cached path, with the http methods it matched no route for
+     */
+    private static final class Entry {
+
+        private final String path;
+        private volatile int methods;
+        private volatile boolean referenced;
+
+        private Entry(String path, int methods) {
+            this.path = path;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * The counters shared by the caches of the tables of a snapshot
+     */
+    private static final class Counters {
+
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger size = new AtomicInteger();
+        private final LongAdder hits = new LongAdder();
+    }
+
+}
@@ -16,7 +16,12 @@
  */
 package spark.routematch;
 
+import java.util.List;
+import java.util.Map;
+
 import spark.route.HttpMethod;
+import spark.route.RoutePattern;
+import spark.utils.SparkUtils;
 
 /**
  * @author Per Wendel
@@ -28,6 +33,8 @@ public class RouteMatch {
     private String requestURI;
     private String acceptType;
     private HttpMethod httpMethod;
+    private RoutePattern pattern;
+    private String[] requestSegments;
 
     public RouteMatch(Object target, String matchUri, String requestUri, String acceptType) {
         this(target, matchUri, requestUri, acceptType, null);
@@ -42,6 +49,28 @@ public class RouteMatch {
         this.httpMethod = httpMethod;
     }
 
+    /**
+     * Constructor used when matching was made against a compiled route pattern. The requested path has already been
+     * split into segments so params and splat can be taken directly from them.
+     *
+     * @param target          the target
+     * @param pattern         the matched route pattern
+     * @param requestUri      the requested uri
+     * @param requestSegments the segments of the requested uri, see {@link SparkUtils#splitPath(String)}
+     * @param acceptType      the accept type
+     * @param httpMethod      the http method
+     */
+    public RouteMatch(Object target,
+                      RoutePattern pattern,
+                      String requestUri,
+                      String[] requestSegments,
+                      String acceptType,
+                      HttpMethod httpMethod) {
+        this(target, pattern.path(), requestUri, acceptType, httpMethod);
+        this.pattern = pattern;
+        this.requestSegments = requestSegments;
+    }
+
     /**
      * @return the accept type
      */
@@ -79,5 +108,44 @@ public class RouteMatch {
         return requestURI;
     }
 
+    /**
+     * @return the route params, keyed by their lower cased name including the ':'
+     */
+    public Map<String, String> getParams() {
+        compile();
+        return pattern.params(requestSegments);
+    }
+
+    /**
+     * @param name the name of the param, with or without the ':', not case sensitive
+     * @return the route param or null if not found
+     */
+    public String getParam(String name) {
+        compile();
+        return pattern.param(requestSegments, name);
+    }
+
+    /**
+     * @return the splat (wildcard) parameters
+     */
+    public List<String> getSplat() {
+        compile();
+        return pattern.splat(requestSegments);
+    }
+
+    /**
+     * @return the segments of the requested uri, see {@link SparkUtils#splitPath(String)}. Must not be modified.
+     */
+    public String[] getRequestSegments() {
+        compile();
+        return requestSegments;
+    }
+
+    private void compile() {
+        if (pattern == null) {
+            pattern = RoutePattern.compile(matchUri);
+            requestSegments = SparkUtils.splitPath(requestURI);
+        }
+    }
 
 }
@@ -59,6 +59,31 @@ final class FilterTools {
         return path;
     }
 
+    /**
+     * Checks if the request URI of a request is already the relative path, i.e. the filter is mapped to '/*', the
+     * application is deployed at the root context and the URI has nothing to decode. The URI is then the servlet
+     * path followed by the path info, whether the servlet is mapped to '/*' (empty servlet path) or is the default
+     * servlet mapped to '/' (null path info).
+     *
+     * @return true if {@link #getRelativePath(HttpServletRequest, String)} returns the request URI
+     */
+    static boolean isRelativePath(HttpServletRequest request, String filterPath) {
+        if (!filterPath.isEmpty() || !request.getContextPath().isEmpty()) {
+            return false;
+        }
+
+        String path = request.getRequestURI();
+        if (path == null || !path.startsWith(SLASH) || path.startsWith(SLASH, 1)) {
+            return false;
+        }
+        if (!isServletPathAndPathInfo(request, path)) {
+            return false;
+        }
+
+        // URL decoding turns '%xx' and '+' into other characters
+        return path.indexOf('%') < 0 && path.indexOf('+') < 0;
+    }
+
     static String getFilterPath(FilterConfig config) {
         String result = config.getInitParameter(FILTER_MAPPING_PARAM);
         if (result == null || result.equals(SLASH_WILDCARD)) {
@@ -72,4 +97,19 @@ final class FilterTools {
         return result.substring(1, result.length() - 1);
     }
 
+    private static boolean isServletPathAndPathInfo(HttpServletRequest request, String path) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+
+        if (servletPath == null || servletPath.isEmpty()) {
+            return path.equals(pathInfo);
+        }
+        if (pathInfo == null) {
+            return path.equals(servletPath);
+        }
+        return path.length() == servletPath.length() + pathInfo.length()
+                && path.startsWith(servletPath)
+                && path.startsWith(pathInfo, servletPath.length());
+    }
+
 }
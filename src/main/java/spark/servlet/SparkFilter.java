@@ -70,6 +70,8 @@ public class SparkFilter implements Filter {
             application.init();
         }
 
+        StaticFilesConfiguration.servletInstance.warmUp();
+
         filterPath = FilterTools.getFilterPath(filterConfig);
 
         matcherFilter = new MatcherFilter(ServletRoutes.get(), StaticFilesConfiguration.servletInstance, ExceptionMapper.getServletInstance(), true, false);
@@ -146,6 +148,22 @@ public class SparkFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request; // NOSONAR
         HttpServletResponse httpResponse = (HttpServletResponse) response; // NOSONAR
 
+        // handle static resources
+        boolean consumed = StaticFilesConfiguration.servletInstance.consume(httpRequest, httpResponse);
+
+        if (consumed) {
+            return;
+        }
+
+        if (FilterTools.isRelativePath(httpRequest, filterPath)) {
+            // the request URI is already the path the routes are matched against
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(httpRequest.getRequestURI());
+            }
+            matcherFilter.doFilterRoutes(httpRequest, httpResponse, chain);
+            return;
+        }
+
         final String relativePath = FilterTools.getRelativePath(httpRequest, filterPath);
 
         if (LOG.isDebugEnabled()) {
@@ -164,14 +182,7 @@ public class SparkFilter implements Filter {
             }
         };
 
-        // handle static resources
-        boolean consumed = StaticFilesConfiguration.servletInstance.consume(httpRequest, httpResponse);
-
-        if (consumed) {
-            return;
-        }
-
-        matcherFilter.doFilter(requestWrapper, response, chain);
+        matcherFilter.doFilterRoutes(requestWrapper, httpResponse, chain);
     }
 
     @Override
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A range of bytes requested with the Range header, e.g. 'bytes=0-499' or 'bytes=-500' for the last 500 bytes.
+ * The ranges of a header are sorted and overlapping or adjacent ranges are coalesced, see RFC 7233 section 4.1.
+ *
+ * @author Per Wendel
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    // more ranges than this are not worth serving separately, the whole content is sent instead
+    static final int MAX_RANGES = 16;
+
+    private static final long NONE = -1;
+    private static final long INVALID = -2;
+
+    private final long start;
+    private final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a Range header
+     *
+     * @param header the Range header
+     * @param length the length of the content
+     * @return the satisfiable ranges, sorted and coalesced, empty if none of them is satisfiable, or null if the
+     * header is invalid or asks for too many ranges, or for more bytes than the content holds, and the whole content
+     * should be sent
+     */
+    static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            long first = parsePosition(trimmed.substring(0, dash).trim());
+            long last = parsePosition(trimmed.substring(dash + 1).trim());
+
+            if (first == INVALID || last == INVALID || (first == NONE && last == NONE)) {
+                return null;
+            }
+
+            if (first == NONE) {
+                // suffix range, the last bytes of the content
+                if (last > 0 && length > 0) {
+                    ranges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                }
+            } else if (last != NONE && last < first) {
+                return null;
+            } else if (first < length) {
+                ranges.add(new ByteRange(first, last == NONE ? length - 1 : Math.min(last, length - 1)));
+            }
+        }
+        return coalesce(ranges, length);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges, long length) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        long requested = 0;
+        for (ByteRange range : ranges) {
+            requested += range.length();
+        }
+        if (requested > length) {
+            // overlapping ranges asking for the content more than once
+            return null;
+        }
+
+        ranges.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> coalesced = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+
+        for (ByteRange next : ranges.subList(1, ranges.size())) {
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+
+    long start() {
+        return start;
+    }
+
+    long end() {
+        return end;
+    }
+
+    long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @param total the length of the whole content
+     * @return the value of the Content-Range header
+     */
+    String contentRange(long total) {
+        return "bytes " + start + "-" + end + "/" + total;
+    }
+
+    private static long parsePosition(String position) {
+        if (position.isEmpty()) {
+            return NONE;
+        }
+
+        for (int i = 0; i < position.length(); i++) {
+            if (position.charAt(i) < '0' || position.charAt(i) > '9') {
+                return INVALID;
+            }
+        }
+
+        try {
+            return Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            // too large
+            return INVALID;
+        }
+    }
+
+}
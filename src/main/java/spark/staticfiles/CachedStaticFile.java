@@ -0,0 +1,168 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ExternalResource;
+import spark.utils.IOUtils;
+
+/**
+ * The content of a static file held in memory, together with its GZIP encoded content and metadata. The GZIP encoded
+ * content is read from a precompressed sibling when there is one, files that are not worth compressing have none.
+ * Files from an external folder can change, {@link #isModified()} tells if the file has changed since it was read.
+ *
+ * @author Per Wendel
+ */
+final class CachedStaticFile {
+
+    private final String filename;
+    private final byte[] content;
+    private final byte[] gzipped;  // null if sent as it is
+    private final long lastModified;
+    private final String etag;
+    private final String gzipEtag;  // null if sent as it is
+
+    // the file in the external folder, null for classpath resources
+    private final File file;
+
+    private volatile MimeType.Resolved contentType;
+
+    private CachedStaticFile(String filename, byte[] content, byte[] gzipped, long lastModified, File file) {
+        this.filename = filename;
+        this.contentType = MimeType.resolve(filename);
+        this.content = content;
+        this.gzipped = gzipped;
+        this.lastModified = lastModified;
+        this.etag = EntityTags.of(content);
+        this.gzipEtag = gzipped != null ? EntityTags.gzip(etag) : null;
+        this.file = file;
+    }
+
+    /**
+     * Reads a static file
+     *
+     * @param resource the resource
+     * @param maxSize  the max size of the content
+     * @return the file or null if the size of the content is unknown or larger than max size
+     * @throws IOException in case of IO error.
+     */
+    static CachedStaticFile read(AbstractFileResolvingResource resource, long maxSize) throws IOException {
+        File file = resource instanceof ExternalResource ? resource.getFile() : null;
+
+        // read before the content, a file changed while reading is then read again
+        long lastModified = lastModified(resource);
+        long length = resource.contentLength();
+
+        if (length < 0 || length > maxSize) {
+            return null;
+        }
+
+        byte[] content;
+        try (InputStream inputStream = resource.getInputStream()) {
+            content = IOUtils.toByteArray(inputStream);
+        }
+
+        String filename = Optional.ofNullable(resource.getFilename()).orElse("");
+        return new CachedStaticFile(filename, content, gzip(resource, content, lastModified), lastModified, file);
+    }
+
+    String filename() {
+        return filename;
+    }
+
+    /**
+     * @return the content type, resolved again if a MIME type has been registered since the file was read
+     */
+    String contentType() {
+        MimeType.Resolved resolved = contentType;
+        if (!resolved.isCurrent()) {
+            resolved = MimeType.resolve(filename);
+            contentType = resolved;
+        }
+        return resolved.mimeType();
+    }
+
+    byte[] content() {
+        return content;
+    }
+
+    /**
+     * @return the GZIP encoded content or null if the file is sent as it is
+     */
+    byte[] gzipped() {
+        return gzipped;
+    }
+
+    long lastModified() {
+        return lastModified;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    /**
+     * @return the entity tag of the GZIP encoded content or null if the file is sent as it is
+     */
+    String gzipEtag() {
+        return gzipEtag;
+    }
+
+    /**
+     * @return the number of bytes held in memory
+     */
+    long size() {
+        return (long) content.length + (gzipped != null ? gzipped.length : 0);
+    }
+
+    /**
+     * @return true if the file in the external folder has been changed or deleted since it was read
+     */
+    boolean isModified() {
+        return file != null && (file.lastModified() != lastModified || file.length() != content.length);
+    }
+
+    private static long lastModified(AbstractFileResolvingResource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] gzip(AbstractFileResolvingResource resource,
+                               byte[] content,
+                               long lastModified) throws IOException {
+        AbstractFileResolvingResource sibling = GzipVariants.sibling(resource, lastModified);
+        if (sibling != null) {
+            try (InputStream inputStream = sibling.getInputStream()) {
+                return IOUtils.toByteArray(inputStream);
+            }
+        }
+
+        if (GzipVariants.isCompressible(MimeType.fromResource(resource), content.length)) {
+            return GzipVariants.gzip(content);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import spark.resource.AbstractFileResolvingResource;
+
+/**
+ * Strong entity tags (ETags) of static files, computed from a hash of the content. The content of a file is read
+ * once to compute its tag, the tag is then kept until the file's length or last-modified time changes. Large files
+ * get a weak tag made of their length and last-modified time instead, so they are never read only to be hashed.
+ *
+ * @author Per Wendel
+ */
+final class EntityTags {
+
+    static final int MAX_SIZE = 10000;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, Tag> tags = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the entity tag of a static file
+     *
+     * @param resource     the resource
+     * @param lastModified the last-modified time of the resource
+     * @param length       the length of the resource
+     * @return the entity tag, including the quotes, weak for a large file
+     * @throws IOException in case of IO error.
+     */
+    String get(AbstractFileResolvingResource resource, long lastModified, long length) throws IOException {
+        if (length >= FileChannelSender.LARGE_FILE_SIZE) {
+            return weak(lastModified, length);
+        }
+
+        String key = resource.getDescription();
+        Tag tag = tags.get(key);
+
+        if (tag != null && tag.lastModified == lastModified && tag.length == length) {
+            return tag.etag;
+        }
+
+        String etag;
+        try (InputStream inputStream = resource.getInputStream()) {
+            etag = of(inputStream);
+        }
+
+        if (tags.size() >= MAX_SIZE) {
+            tags.clear();
+        }
+        tags.put(key, new Tag(etag, lastModified, length));
+        return etag;
+    }
+
+    /**
+     * @return the number of files with a known tag
+     */
+    int size() {
+        return tags.size();
+    }
+
+    /**
+     * Computes the entity tag of content
+     *
+     * @param content the content
+     * @return the entity tag, including the quotes
+     */
+    static String of(byte[] content) {
+        MessageDigest digest = digest();
+        digest.update(content);
+        return format(digest.digest());
+    }
+
+    /**
+     * Computes the entity tag of content
+     *
+     * @param inputStream the content
+     * @return the entity tag, including the quotes
+     * @throws IOException in case of IO error.
+     */
+    static String of(InputStream inputStream) throws IOException {
+        MessageDigest digest = digest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+            digest.update(buffer, 0, read);
+        }
+        return format(digest.digest());
+    }
+
+    /**
+     * Computes the weak entity tag of a large file, which changes when the file is written to
+     *
+     * @param lastModified the last-modified time of the file
+     * @param length       the length of the file
+     * @return the entity tag, e.g. 'W/"100000-17a2b3c4d5e"'
+     */
+    static String weak(long lastModified, long length) {
+        return "W/\"" + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+    }
+
+    /**
+     * @param etag the entity tag
+     * @return true if the tag is weak, it then never matches in a strong comparison, e.g. of If-Range
+     */
+    static boolean isWeak(String etag) {
+        return etag.startsWith("W/");
+    }
+
+    /**
+     * Gets the entity tag of the GZIP encoded variant of a file, which is another representation of the file and
+     * must not share its tag
+     *
+     * @param etag the entity tag of the file, including the quotes
+     * @return the entity tag with a '-gzip' suffix, null if the file has no tag
+     */
+    static String gzip(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Checks the entity tags of an If-None-Match header, using the weak comparison
+     *
+     * @param header the If-None-Match header, e.g. '"a", W/"b"' or '*'
+     * @param etag   the entity tag of the file
+     * @return true if one of the tags matches
+     */
+    static boolean matches(String header, String etag) {
+        String opaque = isWeak(etag) ? etag.substring(2) : etag;
+
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (isWeak(tag)) {
+                tag = tag.substring(2);
+            }
+
+            if (tag.equals("*") || tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always supported
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String format(byte[] hash) {
+        char[] chars = new char[hash.length * 2 + 2];
+        chars[0] = '"';
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2 + 1] = HEX[(hash[i] >> 4) & 0xf];
+            chars[i * 2 + 2] = HEX[hash[i] & 0xf];
+        }
+        chars[chars.length - 1] = '"';
+        return new String(chars);
+    }
+
+    private static final class Tag {
+        private final String etag;
+        private final long lastModified;
+        private final long length;
+
+        private Tag(String etag, long lastModified, long length) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends files from the external folder with Jetty's
+ * {@link HttpOutput#sendContent(java.nio.channels.ReadableByteChannel)}.
+ * The file channel is read into Jetty's pooled buffers and written to the connection, the content is not copied
+ * through byte arrays on the heap. Large files are sent asynchronously, the request thread is then released while
+ * the file is written.
+ *
+ * @author Per Wendel
+ */
+final class FileChannelSender {
+    private static final Logger LOG = LoggerFactory.getLogger(FileChannelSender.class);
+
+    // large files are sent uncompressed and asynchronously
+    static final long LARGE_FILE_SIZE = 1024 * 1024;
+
+    private FileChannelSender() {
+    }
+
+    /**
+     * Sends a file as the response body, uncompressed
+     *
+     * @param file         the file
+     * @param httpRequest  the HTTP servlet request.
+     * @param httpResponse the HTTP servlet response.
+     * @return true if sent, false if the response is not written by Jetty
+     * @throws IOException in case of IO error.
+     */
+    static boolean send(File file,
+                        HttpServletRequest httpRequest,
+                        HttpServletResponse httpResponse) throws IOException {
+        ServletOutputStream outputStream = httpResponse.getOutputStream();
+
+        if (!(outputStream instanceof HttpOutput)) {
+            return false;
+        }
+
+        HttpOutput httpOutput = (HttpOutput) outputStream;
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long size = channel.size();
+
+        httpResponse.setContentLengthLong(size);
+
+        if (size >= LARGE_FILE_SIZE && httpRequest.isAsyncSupported()) {
+            try {
+                AsyncContext asyncContext = httpRequest.startAsync();
+                // a download can take longer than the default timeout, the idle timeout of the connection still applies
+                asyncContext.setTimeout(0);
+                httpOutput.sendContent(channel, new Completion(channel, asyncContext));
+            } catch (RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } else {
+            try (FileChannel fileChannel = channel) {
+                httpOutput.sendContent(fileChannel);
+            }
+        }
+        return true;
+    }
+
+    private static final class Completion implements Callback {
+        private final FileChannel channel;
+        private final AsyncContext asyncContext;
+
+        private Completion(FileChannel channel, AsyncContext asyncContext) {
+            this.channel = channel;
+            this.asyncContext = asyncContext;
+        }
+
+        @Override
+        public void succeeded() {
+            complete();
+        }
+
+        @Override
+        public void failed(Throwable x) {
+            LOG.debug("Sending static file failed", x);
+            complete();
+        }
+
+        private void complete() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.debug("Error when closing static file", e);
+            }
+            asyncContext.complete();
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ClassPathResource;
+import spark.resource.ExternalResource;
+import spark.utils.IOUtils;
+
+/**
+ * The GZIP encoded variants of static files. A precompressed sibling, e.g. 'app.js.gz' next to 'app.js', is served
+ * when there is one. Otherwise the file is compressed once and the result is kept in a cache with a budget of bytes.
+ * Small files, large files and files of already compressed types, e.g. png or zip, are sent as they are.
+ *
+ * @author Per Wendel
+ */
+final class GzipVariants {
+
+    // compressing smaller files saves too little to be worth it
+    static final int MIN_SIZE = 256;
+
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    static final int MAX_FILES = 10000;
+
+    private static final String SIBLING_SUFFIX = ".gz";
+
+    private static final Set<String> COMPRESSED_TYPES = new HashSet<>(Arrays.asList(
+            "image/png",
+            "image/jpeg",
+            "image/gif",
+            "image/webp",
+            "application/zip",
+            "application/x-compressed-zip",
+            "application/x-gzip",
+            "application/x-bzip2",
+            "application/x-rar-compressed",
+            "application/x-tar",
+            "application/java-archive",
+            "application/font-woff",
+            "application/font-woff2",
+            "audio/mpeg",
+            "audio/vorbis",
+            "application/ogg",
+            "video/mpeg",
+            "video/quicktime",
+            "video/msvideo",
+            "video/avi",
+            "video/x-msvideo"));
+
+    /**
+     * Sent without compression
+     */
+    static final Variant NONE = new Variant(null, null);
+
+    private final Map<String, Entry> variants = new ConcurrentHashMap<>();
+    private final long maxBytes;
+    private final AtomicLong bytes = new AtomicLong();
+
+    GzipVariants() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    GzipVariants(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the GZIP encoded variant of a static file
+     *
+     * @param resource     the resource
+     * @param lastModified the last-modified time of the resource
+     * @param length       the length of the resource
+     * @return the variant, {@link #NONE} if the file is sent as it is
+     * @throws IOException in case of IO error.
+     */
+    Variant get(AbstractFileResolvingResource resource, long lastModified, long length) throws IOException {
+        String key = resource.getDescription();
+        Entry entry = variants.get(key);
+
+        if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+            return entry.variant;
+        }
+
+        Variant variant = resolve(resource, lastModified, length);
+        long size = variant.content != null ? variant.content.length : 0;
+
+        if (size > maxBytes / 4) {
+            // compressed again for every request rather than taking up most of the budget
+            return variant;
+        }
+
+        if (variants.size() >= MAX_FILES) {
+            clear();
+        }
+
+        Entry previous = variants.put(key, new Entry(variant, lastModified, length));
+        bytes.addAndGet(size - (previous != null && previous.variant.content != null
+                ? previous.variant.content.length : 0));
+
+        if (bytes.get() > maxBytes) {
+            evict();
+        }
+        return variant;
+    }
+
+    /**
+     * @return the number of bytes held by compressed variants
+     */
+    long bytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Checks if a static file is worth compressing
+     *
+     * @param contentType the content type of the file
+     * @param length      the length of the file
+     * @return true if the file is not too small, not too large and not of an already compressed type
+     */
+    static boolean isCompressible(String contentType, long length) {
+        return length >= MIN_SIZE
+                && length < FileChannelSender.LARGE_FILE_SIZE
+                && !isCompressedType(contentType);
+    }
+
+    // the MIME type of some extensions lists several types, e.g. 'application/zip,application/x-compressed-zip'
+    private static boolean isCompressedType(String contentType) {
+        if (contentType == null || contentType.indexOf(',') < 0) {
+            return COMPRESSED_TYPES.contains(contentType);
+        }
+        for (String type : contentType.split(",")) {
+            if (COMPRESSED_TYPES.contains(type.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the precompressed sibling of a static file, e.g. 'app.js.gz' for 'app.js'. A sibling in the external
+     * folder that is older than the file is left out, as the file has been changed after it was compressed.
+     *
+     * @param resource     the resource
+     * @param lastModified the last-modified time of the resource
+     * @return the sibling or null if there is none
+     */
+    static AbstractFileResolvingResource sibling(AbstractFileResolvingResource resource, long lastModified) {
+        if (resource instanceof ClassPathResource) {
+            String path = ((ClassPathResource) resource).getPath() + SIBLING_SUFFIX;
+            ClassPathResource sibling = new ClassPathResource(path);
+            return sibling.exists() && sibling.isReadable() ? sibling : null;
+        }
+
+        if (resource instanceof ExternalResource) {
+            String path = ((ExternalResource) resource).getPath() + SIBLING_SUFFIX;
+            ExternalResource sibling = new ExternalResource(path);
+            try {
+                return sibling.isReadable() && sibling.lastModified() >= lastModified ? sibling : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compresses content
+     *
+     * @param content the content
+     * @return the GZIP encoded content
+     * @throws IOException in case of IO error.
+     */
+    static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes)) {
+            gzipOutputStream.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Variant resolve(AbstractFileResolvingResource resource,
+                                   long lastModified,
+                                   long length) throws IOException {
+        AbstractFileResolvingResource sibling = sibling(resource, lastModified);
+        if (sibling != null) {
+            return new Variant(null, sibling);
+        }
+
+        if (length < 0 || !isCompressible(MimeType.fromResource(resource), length)) {
+            return NONE;
+        }
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            return new Variant(gzip(IOUtils.toByteArray(inputStream)), null);
+        }
+    }
+
+    private void clear() {
+        variants.clear();
+        bytes.set(0);
+    }
+
+    // compressed variants are evicted in no particular order, siblings and decisions take up no budget
+    private synchronized void evict() {
+        Iterator<Entry> entries = variants.values().iterator();
+
+        while (bytes.get() > maxBytes && entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.variant.content != null) {
+                entries.remove();
+                bytes.addAndGet(-entry.variant.content.length);
+            }
+        }
+    }
+
+    /**
+     * A GZIP encoded variant, either compressed content or a precompressed sibling
+     */
+    static final class Variant {
+        private final byte[] content;
+        private final AbstractFileResolvingResource sibling;
+
+        private Variant(byte[] content, AbstractFileResolvingResource sibling) {
+            this.content = content;
+            this.sibling = sibling;
+        }
+
+        byte[] content() {
+            return content;
+        }
+
+        AbstractFileResolvingResource sibling() {
+            return sibling;
+        }
+    }
+
+    private static final class Entry {
+        private final Variant variant;
+        private final long lastModified;
+        private final long length;
+
+        private Entry(Variant variant, long lastModified, long length) {
+            this.variant = variant;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
  */
 package spark.staticfiles;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -23,7 +24,8 @@ import java.util.Optional;
 import spark.resource.AbstractFileResolvingResource;
 
 /**
- * Configures and holds mappings from file extensions to MIME types.
+ * Configures and holds mappings from file extensions to MIME types. The mappings are never changed once published,
+ * registering a mapping publishes a changed copy.
  */
 public class MimeType {
 
@@ -31,9 +33,12 @@ public class MimeType {
 
     private static volatile boolean guessingOn = true;
 
-    private static Map<String, String> mappings = new HashMap();
+    private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+
+    private static volatile Map<String, String> mappings;
 
     static {
+        Map<String, String> mappings = new HashMap<>();
         mappings.put("au", "audio/basic");
         mappings.put("avi", "video/msvideo,video/avi,video/x-msvideo");
         mappings.put("bmp", "image/bmp");
@@ -96,10 +101,13 @@ public class MimeType {
         mappings.put("xltx", "application/vnd.openxmlformats-officedocument.spreadsheetml.template");
         mappings.put("xml", "application/xml");
         mappings.put("zip", "application/zip,application/x-compressed-zip");
+        MimeType.mappings = Collections.unmodifiableMap(mappings);
     }
 
-    public static void register(String extension, String mimeType) {
-        mappings.put(extension, mimeType);
+    public static synchronized void register(String extension, String mimeType) {
+        Map<String, String> copy = new HashMap<>(mappings);
+        copy.put(extension, mimeType);
+        mappings = Collections.unmodifiableMap(copy);
     }
 
     public static void disableGuessing() {
@@ -112,8 +120,30 @@ public class MimeType {
     }
 
     protected static String getMimeType(String filename) {
-        String fileExtension = filename.replaceAll("^.*\\.(.*)$", "$1");
-        return mappings.getOrDefault(fileExtension, "application/octet-stream");
+        return getMimeType(filename, mappings);
+    }
+
+    /**
+     * Resolves the MIME type of a file name once, see {@link Resolved#isCurrent()}
+     *
+     * @param filename the file name
+     * @return the resolved MIME type
+     */
+    static Resolved resolve(String filename) {
+        Map<String, String> current = mappings;
+        return new Resolved(getMimeType(filename, current), current);
+    }
+
+    private static String getMimeType(String filename, Map<String, String> mappings) {
+        return mappings.getOrDefault(extension(filename), DEFAULT_MIME_TYPE);
+    }
+
+    /**
+     * @return the text after the last dot or the whole file name if there is no dot
+     */
+    static String extension(String filename) {
+        int lastDot = filename.lastIndexOf('.');
+        return lastDot < 0 ? filename : filename.substring(lastDot + 1);
     }
 
     protected static String fromPathInfo(String pathInfo) {
@@ -123,4 +153,28 @@ public class MimeType {
     protected static boolean shouldGuess() {
         return guessingOn;
     }
+
+    /**
+     * A MIME type resolved with the mappings that were published at the time
+     */
+    static final class Resolved {
+        private final String mimeType;
+        private final Map<String, String> mappings;
+
+        private Resolved(String mimeType, Map<String, String> mappings) {
+            this.mimeType = mimeType;
+            this.mappings = mappings;
+        }
+
+        String mimeType() {
+            return mimeType;
+        }
+
+        /**
+         * @return false if a mapping has been registered since the MIME type was resolved
+         */
+        boolean isCurrent() {
+            return mappings == MimeType.mappings;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.http.HttpServletResponse;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.utils.ResourceUtils;
+
+/**
+ * Sends the requested ranges of a static file, as a 206 (Partial Content) response. A single range is sent as is,
+ * several ranges as 'multipart/byteranges'. Files are read at the position of the range, resources in jars are
+ * skipped to it.
+ *
+ * @author Per Wendel
+ */
+final class PartialContent {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private PartialContent() {
+    }
+
+    /**
+     * The content of a static file
+     */
+    interface Source {
+
+        /**
+         * Copies a part of the content
+         *
+         * @param start  the position of the first byte
+         * @param length the number of bytes
+         * @param out    the output stream
+         * @throws IOException in case of IO error.
+         */
+        void copy(long start, long length, OutputStream out) throws IOException;
+    }
+
+    static Source of(byte[] content) {
+        return (start, length, out) -> out.write(content, (int) start, (int) length);
+    }
+
+    static Source of(AbstractFileResolvingResource resource) throws IOException {
+        if (ResourceUtils.isFileURL(resource.getURL())) {
+            return of(resource.getFile());
+        }
+        return (start, length, out) -> {
+            try (InputStream inputStream = resource.getInputStream()) {
+                skipFully(inputStream, start);
+                copy(inputStream, length, out);
+            }
+        };
+    }
+
+    static Source of(File file) {
+        return (start, length, out) -> {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1)));
+                long position = start;
+                long remaining = length;
+
+                while (remaining > 0) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), remaining));
+
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("Static file shorter than expected");
+                    }
+                    out.write(buffer.array(), 0, read);
+                    position += read;
+                    remaining -= read;
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends the ranges or 416 (Range Not Satisfiable) if there are none
+     *
+     * @param ranges       the satisfiable ranges
+     * @param total        the length of the whole content
+     * @param contentType  the content type of the file, null if unknown
+     * @param source       the content
+     * @param httpResponse the HTTP servlet response.
+     * @throws IOException in case of IO error.
+     */
+    static void send(List<ByteRange> ranges,
+                     long total,
+                     String contentType,
+                     Source source,
+                     HttpServletResponse httpResponse) throws IOException {
+        if (ranges.isEmpty()) {
+            httpResponse.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            httpResponse.setHeader("Content-Range", "bytes */" + total);
+            httpResponse.setContentLength(0);
+            return;
+        }
+
+        httpResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        OutputStream out = httpResponse.getOutputStream();
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            httpResponse.setHeader("Content-Range", range.contentRange(total));
+            httpResponse.setContentLengthLong(range.length());
+            source.copy(range.start(), range.length(), out);
+            return;
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        httpResponse.setHeader(MimeType.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+
+        for (ByteRange range : ranges) {
+            StringBuilder partHeaders = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                partHeaders.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            partHeaders.append("Content-Range: ").append(range.contentRange(total)).append("\r\n\r\n");
+
+            out.write(partHeaders.toString().getBytes(StandardCharsets.ISO_8859_1));
+            source.copy(range.start(), range.length(), out);
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void skipFully(InputStream inputStream, long count) throws IOException {
+        long remaining = count;
+
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("Static file shorter than expected");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void copy(InputStream inputStream, long length, OutputStream out) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(length, 1))];
+        long remaining = length;
+
+        while (remaining > 0) {
+            int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Static file shorter than expected");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import spark.resource.AbstractFileResolvingResource;
+
+/**
+ * Cache of static files held in memory, keyed by request path. The files are read from the classpath or the external
+ * folder once and then served from memory, together with a GZIP encoded variant. The cache has a budget of bytes,
+ * the least recently served files are evicted when it is exceeded. Files larger than a quarter of the budget are
+ * not cached, requests for them are counted apart from the misses.
+ *
+ * @author Per Wendel
+ */
+public final class StaticFilesCache {
+
+    static final int MAX_UNCACHEABLE = 10000;
+
+    // in access order, the least recently served file first, guarded by itself
+    private final Map<String, CachedStaticFile> files = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+
+    // the paths of files found to be too large to be cached
+    private final Set<String> uncacheablePaths = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder uncacheable = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    StaticFilesCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets a cached file
+     *
+     * @param path the request path
+     * @return the file or null if not cached or if the file in the external folder has been changed
+     */
+    CachedStaticFile get(String path) {
+        CachedStaticFile file;
+        synchronized (files) {
+            file = files.get(path);
+        }
+
+        if (file == null) {
+            if (uncacheablePaths.contains(path)) {
+                uncacheable.increment();
+            } else {
+                misses.increment();
+            }
+            return null;
+        }
+        if (file.isModified()) {
+            remove(path, file);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return file;
+    }
+
+    /**
+     * Reads a static file into the cache
+     *
+     * @param path     the request path
+     * @param resource the resource served for the path
+     * @return the file or null if it is too large to be cached
+     * @throws IOException in case of IO error.
+     */
+    CachedStaticFile load(String path, AbstractFileResolvingResource resource) throws IOException {
+        CachedStaticFile file = CachedStaticFile.read(resource, maxBytes / 4);
+
+        if (file == null) {
+            if (uncacheablePaths.size() >= MAX_UNCACHEABLE) {
+                uncacheablePaths.clear();
+            }
+            uncacheablePaths.add(path);
+            return null;
+        }
+
+        uncacheablePaths.remove(path);
+        synchronized (files) {
+            CachedStaticFile previous = files.put(path, file);
+            bytes += file.size() - (previous != null ? previous.size() : 0);
+            evict();
+        }
+        return file;
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of requests for files that were not cached, but could be
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of requests for files known to be too large to be cached
+     */
+    public long uncacheableCount() {
+        return uncacheable.sum();
+    }
+
+    /**
+     * @return the share of requests for cacheable files served from the cache, between 0 and 1
+     */
+    public double hitRatio() {
+        long hitCount = hitCount();
+        long requests = hitCount + missCount();
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    /**
+     * @return the number of files evicted to stay within the budget
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cached files
+     */
+    public int size() {
+        synchronized (files) {
+            return files.size();
+        }
+    }
+
+    /**
+     * @return the number of bytes held by the cached files
+     */
+    public long bytes() {
+        synchronized (files) {
+            return bytes;
+        }
+    }
+
+    /**
+     * @return the budget of bytes
+     */
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Clears the cached files and the counters
+     */
+    public void clear() {
+        synchronized (files) {
+            files.clear();
+            bytes = 0;
+        }
+        uncacheablePaths.clear();
+        hits.reset();
+        misses.reset();
+        uncacheable.reset();
+        evictions.reset();
+    }
+
+    private void remove(String path, CachedStaticFile file) {
+        synchronized (files) {
+            if (files.remove(path, file)) {
+                bytes -= file.size();
+            }
+        }
+    }
+
+    // called holding the lock, the least recently served files are evicted first
+    private void evict() {
+        Iterator<CachedStaticFile> leastRecentlyServed = files.values().iterator();
+
+        while (bytes > maxBytes && leastRecentlyServed.hasNext()) {
+            CachedStaticFile file = leastRecentlyServed.next();
+            leastRecentlyServed.remove();
+            bytes -= file.size();
+            evictions.increment();
+        }
+    }
+
+}
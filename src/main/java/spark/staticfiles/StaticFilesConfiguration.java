@@ -20,10 +20,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -33,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import spark.resource.AbstractFileResolvingResource;
 import spark.resource.AbstractResourceHandler;
+import spark.resource.ClassPathResource;
 import spark.resource.ClassPathResourceHandler;
 import spark.resource.ExternalResource;
 import spark.resource.ExternalResourceHandler;
@@ -42,9 +46,22 @@ import spark.utils.IOUtils;
 
 /**
  * Holds the static file configuration.
- * TODO: ETAG ?
  */
 public class StaticFilesConfiguration {
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String GZIP = "gzip";
+    private static final String VARY = "Vary";
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String BYTES = "bytes";
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String EXPIRES = "Expires";
+
     private final Logger LOG = LoggerFactory.getLogger(StaticFilesConfiguration.class);
 
     private List<AbstractResourceHandler> staticResourceHandlers = null;
@@ -55,6 +72,23 @@ public class StaticFilesConfiguration {
     public static StaticFilesConfiguration servletInstance = new StaticFilesConfiguration();
 
     private Map<String, String> customHeaders = new HashMap<>();
+    private long expireTimeSeconds = -1;
+
+    private final EntityTags entityTags = new EntityTags();
+    private final GzipVariants gzipVariants = new GzipVariants();
+
+    private StaticFilesIndex classPathIndex;
+    private StaticFilesIndex externalIndex;
+    private String externalFolder;
+    private boolean watchExternal = false;
+
+    // the indexes of all the configured folders, null if a folder is not indexed and must be probed
+    private volatile List<StaticFilesIndex> indexes;
+
+    private volatile StaticFilesCache cache;
+
+    // the max number of bytes of files preloaded when the server is initialized, 0 if not enabled
+    private long warmUpMaxBytes = 0;
 
     /**
      * Attempt consuming using either static resource handlers or jar resource handlers
@@ -84,7 +118,23 @@ public class StaticFilesConfiguration {
 
     private boolean consumeWithFileResourceHandlers(HttpServletRequest httpRequest,
                                                     HttpServletResponse httpResponse) throws IOException {
-        if (staticResourceHandlers != null) {
+        if (staticResourceHandlers == null) {
+            return false;
+        }
+
+        String path = AbstractResourceHandler.getPathInContext(httpRequest);
+
+        if (mayBeStaticFile(path)) {
+            StaticFilesCache staticFilesCache = cache;
+            boolean cacheable = staticFilesCache != null && StaticFilesIndex.isIndexable(path);
+
+            if (cacheable) {
+                CachedStaticFile cached = staticFilesCache.get(path);
+                if (cached != null) {
+                    writeCached(cached, httpRequest, httpResponse);
+                    return true;
+                }
+            }
 
             for (AbstractResourceHandler staticResourceHandler : staticResourceHandlers) {
 
@@ -92,14 +142,49 @@ public class StaticFilesConfiguration {
 
                 if (resource != null && resource.isReadable()) {
 
-                    if (MimeType.shouldGuess()) {
-                        httpResponse.setHeader(MimeType.CONTENT_TYPE, MimeType.fromResource(resource));
+                    if (cacheable) {
+                        CachedStaticFile cached = staticFilesCache.load(path, resource);
+                        if (cached != null) {
+                            writeCached(cached, httpRequest, httpResponse);
+                            return true;
+                        }
+                    }
+
+                    String contentType = MimeType.shouldGuess() ? contentType(path, resource) : null;
+                    setHeaders(contentType, httpResponse);
+
+                    long length = resource.contentLength();
+                    long lastModified = lastModified(resource);
+                    String etag = length >= 0 ? entityTags.get(resource, lastModified, length) : null;
+
+                    GzipVariants.Variant variant = gzipVariants.get(resource, lastModified, length);
+                    boolean gzip = variant != GzipVariants.NONE && GzipUtils.acceptsGzip(httpRequest);
+                    if (variant != GzipVariants.NONE) {
+                        httpResponse.setHeader(VARY, ACCEPT_ENCODING);
                     }
-                    customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
 
-                    try (InputStream inputStream = resource.getInputStream();
-                         OutputStream wrappedOutputStream = GzipUtils.checkAndWrap(httpRequest, httpResponse, false)) {
-                        IOUtils.copy(inputStream, wrappedOutputStream);
+                    if (notModified(gzip ? EntityTags.gzip(etag) : etag, lastModified, httpRequest, httpResponse)) {
+                        return true;
+                    }
+
+                    if (length >= 0 && httpRequest.getHeader(RANGE) != null) {
+                        List<ByteRange> ranges = requestedRanges(httpRequest, length, lastModified, etag);
+                        if (ranges != null) {
+                            setIdentityTag(gzip, etag, httpResponse);
+                            PartialContent.send(ranges, length, contentType, PartialContent.of(resource), httpResponse);
+                            return true;
+                        }
+                    }
+
+                    if (!gzip) {
+                        send(resource, httpRequest, httpResponse);
+                    } else if (variant.sibling() != null) {
+                        httpResponse.setHeader(CONTENT_ENCODING, GZIP);
+                        send(variant.sibling(), httpRequest, httpResponse);
+                    } else {
+                        httpResponse.setHeader(CONTENT_ENCODING, GZIP);
+                        httpResponse.setContentLength(variant.content().length);
+                        httpResponse.getOutputStream().write(variant.content());
                     }
 
                     return true;
@@ -110,16 +195,234 @@ public class StaticFilesConfiguration {
         return false;
     }
 
+    private static void send(AbstractFileResolvingResource resource,
+                             HttpServletRequest httpRequest,
+                             HttpServletResponse httpResponse) throws IOException {
+        if (resource instanceof ExternalResource
+                && FileChannelSender.send(resource.getFile(), httpRequest, httpResponse)) {
+            return;
+        }
+
+        try (InputStream inputStream = resource.getInputStream();
+             OutputStream outputStream = httpResponse.getOutputStream()) {
+            IOUtils.copy(inputStream, outputStream);
+        }
+    }
+
+    private void setHeaders(String contentType, HttpServletResponse httpResponse) {
+        if (contentType != null) {
+            httpResponse.setHeader(MimeType.CONTENT_TYPE, contentType);
+        }
+        if (expireTimeSeconds >= 0) {
+            httpResponse.setDateHeader(EXPIRES, System.currentTimeMillis() + expireTimeSeconds * 1000);
+        }
+        customHeaders.forEach(httpResponse::setHeader); //add all user-defined headers to response
+        httpResponse.setHeader(ACCEPT_RANGES, BYTES);
+    }
+
+    /**
+     * The ranges are of the content as it is, the entity tag set for the compressed variant is replaced
+     */
+    private static void setIdentityTag(boolean gzip, String etag, HttpServletResponse httpResponse) {
+        if (gzip && etag != null) {
+            httpResponse.setHeader(ETAG, etag);
+        }
+    }
+
+    /**
+     * Sets the validators of the file and checks them against the conditional headers of the request
+     *
+     * @return true if the file has not been modified and a 304 (Not Modified) response has been sent
+     */
+    private static boolean notModified(String etag,
+                                       long lastModified,
+                                       HttpServletRequest httpRequest,
+                                       HttpServletResponse httpResponse) {
+        if (etag != null) {
+            httpResponse.setHeader(ETAG, etag);
+        }
+        if (lastModified > 0) {
+            httpResponse.setDateHeader(LAST_MODIFIED, lastModified);
+        }
+
+        if (!isGetOrHead(httpRequest)) {
+            return false;
+        }
+
+        boolean notModified;
+        String ifNoneMatch = httpRequest.getHeader(IF_NONE_MATCH);
+
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when If-None-Match is sent
+            notModified = etag != null && EntityTags.matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = dateHeader(httpRequest, IF_MODIFIED_SINCE);
+            notModified = ifModifiedSince >= 0 && lastModified > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+
+        if (notModified) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Gets the ranges requested with the Range header
+     *
+     * @return the ranges or null if the whole content should be sent
+     */
+    private static List<ByteRange> requestedRanges(HttpServletRequest httpRequest,
+                                                   long length,
+                                                   long lastModified,
+                                                   String etag) {
+        if (!isGetOrHead(httpRequest)) {
+            return null;
+        }
+        if (!ifRangeMatches(httpRequest.getHeader(IF_RANGE), httpRequest, lastModified, etag)) {
+            return null;
+        }
+        return ByteRange.parse(httpRequest.getHeader(RANGE), length);
+    }
+
+    /**
+     * Checks the If-Range header, the ranges are only sent if the file has not changed since the client got
+     * the rest of it
+     */
+    private static boolean ifRangeMatches(String ifRange,
+                                          HttpServletRequest httpRequest,
+                                          long lastModified,
+                                          String etag) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // strong comparison, a weak entity tag never matches
+            return etag != null && !EntityTags.isWeak(etag) && ifRange.equals(etag);
+        }
+
+        long date = dateHeader(httpRequest, IF_RANGE);
+        return lastModified > 0 && date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static boolean isGetOrHead(HttpServletRequest httpRequest) {
+        String method = httpRequest.getMethod();
+        return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+    }
+
+    private static long dateHeader(HttpServletRequest httpRequest, String name) {
+        try {
+            return httpRequest.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            // not a valid date
+            return -1;
+        }
+    }
+
+    private static long lastModified(AbstractFileResolvingResource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeCached(CachedStaticFile cached,
+                             HttpServletRequest httpRequest,
+                             HttpServletResponse httpResponse) throws IOException {
+        String contentType = MimeType.shouldGuess() ? cached.contentType() : null;
+        setHeaders(contentType, httpResponse);
+
+        boolean gzip = cached.gzipped() != null && GzipUtils.acceptsGzip(httpRequest);
+        if (cached.gzipped() != null) {
+            httpResponse.setHeader(VARY, ACCEPT_ENCODING);
+        }
+
+        String etag = gzip ? cached.gzipEtag() : cached.etag();
+        if (notModified(etag, cached.lastModified(), httpRequest, httpResponse)) {
+            return;
+        }
+
+        if (httpRequest.getHeader(RANGE) != null) {
+            List<ByteRange> ranges = requestedRanges(httpRequest,
+                                                     cached.content().length,
+                                                     cached.lastModified(),
+                                                     cached.etag());
+            if (ranges != null) {
+                setIdentityTag(gzip, cached.etag(), httpResponse);
+                PartialContent.send(ranges,
+                                    cached.content().length,
+                                    contentType,
+                                    PartialContent.of(cached.content()),
+                                    httpResponse);
+                return;
+            }
+        }
+
+        byte[] content = cached.content();
+        if (gzip) {
+            httpResponse.setHeader(CONTENT_ENCODING, GZIP);
+            content = cached.gzipped();
+        }
+
+        httpResponse.setContentLength(content.length);
+        httpResponse.getOutputStream().write(content);
+    }
+
+    private String contentType(String path, AbstractFileResolvingResource resource) {
+        List<StaticFilesIndex> staticFilesIndexes = indexes;
+
+        if (staticFilesIndexes != null && StaticFilesIndex.isIndexable(path)) {
+            for (StaticFilesIndex index : staticFilesIndexes) {
+                String contentType = index.contentType(path);
+                if (contentType != null) {
+                    return contentType;
+                }
+            }
+        }
+        return MimeType.fromResource(resource);
+    }
+
+    private boolean mayBeStaticFile(String path) {
+        List<StaticFilesIndex> staticFilesIndexes = indexes;
+
+        if (staticFilesIndexes == null) {
+            return true;
+        }
+
+        if (!StaticFilesIndex.isIndexable(path)) {
+            return true;
+        }
+
+        for (StaticFilesIndex index : staticFilesIndexes) {
+            if (index.contains(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Clears all static file configuration
      */
-    public void clear() {
+    public synchronized void clear() {
 
         if (staticResourceHandlers != null) {
             staticResourceHandlers.clear();
             staticResourceHandlers = null;
         }
 
+        if (externalIndex != null) {
+            externalIndex.close();
+        }
+
+        indexes = null;
+        cache = null;
+        warmUpMaxBytes = 0;
+        classPathIndex = null;
+        externalIndex = null;
+        externalFolder = null;
+        watchExternal = false;
+
         staticResourcesSet = false;
         externalStaticResourcesSet = false;
     }
@@ -149,6 +452,9 @@ public class StaticFilesConfiguration {
             staticResourceHandlers.add(new ClassPathResourceHandler(folder, "index.html"));
             LOG.info("StaticResourceHandler configured with folder = " + folder);
             staticResourcesSet = true;
+
+            classPathIndex = StaticFilesIndex.scanClassPath(folder);
+            publishIndexes();
         }
     }
 
@@ -173,6 +479,12 @@ public class StaticFilesConfiguration {
                 }
                 staticResourceHandlers.add(new ExternalResourceHandler(folder, "index.html"));
                 LOG.info("External StaticResourceHandler configured with folder = " + folder);
+
+                externalFolder = folder;
+                if (watchExternal) {
+                    indexExternal();
+                }
+                publishIndexes();
             } catch (IOException e) {
                 LOG.error("Error when creating external StaticResourceHandler", e);
             }
@@ -181,13 +493,190 @@ public class StaticFilesConfiguration {
         }
     }
 
+    /**
+     * Indexes the external folder and watches it for changes, requests for paths of files that are not in the
+     * folder are then not probed against it. Files can be added to the external folder at runtime, without
+     * watching it the folder is probed for every request.
+     */
+    public synchronized void watchExternal() {
+        if (!watchExternal) {
+            watchExternal = true;
+
+            if (externalFolder != null) {
+                indexExternal();
+                publishIndexes();
+            }
+        }
+    }
+
+    /**
+     * Caches the content of the static files in memory
+     *
+     * @param maxBytes the max number of bytes held by the cache, files larger than a quarter of it are not cached
+     */
+    public synchronized void enableCache(long maxBytes) {
+        Assert.isTrue(maxBytes > 0, "'maxBytes' must be positive");
+        cache = new StaticFilesCache(maxBytes);
+    }
+
+    /**
+     * @return the cache of static files or null if caching is not enabled
+     */
+    public StaticFilesCache cache() {
+        return cache;
+    }
+
+    /**
+     * Preloads the static files when the server is initialized, see {@link #warmUp()}
+     *
+     * @param maxBytes the max number of bytes of files to preload
+     */
+    public synchronized void enableWarmUp(long maxBytes) {
+        Assert.isTrue(maxBytes > 0, "'maxBytes' must be positive");
+        warmUpMaxBytes = maxBytes;
+    }
+
+    /**
+     * Preloads the static files of the configured folders in parallel, if warm-up is enabled. The files are read,
+     * their entity tags, content types and compressed variants are computed and they are put in the cache if
+     * caching is enabled. Files are preloaded until the budget of bytes is used.
+     *
+     * @return the number of bytes preloaded
+     */
+    public long warmUp() {
+        Map<String, AbstractFileResolvingResource> files = new LinkedHashMap<>();
+        long maxBytes;
+
+        synchronized (this) {
+            if (warmUpMaxBytes <= 0 || staticResourceHandlers == null) {
+                return 0;
+            }
+            maxBytes = warmUpMaxBytes;
+
+            // the first configured folder serves a path found in both
+            for (AbstractResourceHandler staticResourceHandler : staticResourceHandlers) {
+                if (staticResourceHandler instanceof ClassPathResourceHandler && classPathIndex != null) {
+                    for (String path : classPathIndex.files()) {
+                        String resourcePath = AbstractResourceHandler.addPaths(classPathIndex.folder(), path);
+                        files.putIfAbsent(path, new ClassPathResource(resourcePath));
+                    }
+                } else if (staticResourceHandler instanceof ExternalResourceHandler && externalFolder != null) {
+                    StaticFilesIndex index = externalIndex != null
+                            ? externalIndex
+                            : StaticFilesIndex.scanExternal(externalFolder);
+
+                    if (index != null) {
+                        for (String path : index.files()) {
+                            String resourcePath = AbstractResourceHandler.addPaths(externalFolder, path);
+                            files.putIfAbsent(path, new ExternalResource(resourcePath));
+                        }
+                    }
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        AtomicLong budget = new AtomicLong(maxBytes);
+
+        LongSummaryStatistics loaded = files.entrySet()
+                .parallelStream()
+                .mapToLong(file -> warmUp(file.getKey(), file.getValue(), budget))
+                .filter(bytes -> bytes >= 0)
+                .summaryStatistics();
+
+        LOG.info("Static files warmed up in {} ms, {} files of {} preloaded, {} bytes",
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                 loaded.getCount(),
+                 files.size(),
+                 loaded.getSum());
+        return loaded.getSum();
+    }
+
+    /**
+     * @return the number of bytes of the file or -1 if it has not been preloaded
+     */
+    private long warmUp(String path, AbstractFileResolvingResource resource, AtomicLong budget) {
+        try {
+            long length = resource.contentLength();
+
+            if (length < 0 || !reserve(budget, length)) {
+                return -1;
+            }
+
+            StaticFilesCache staticFilesCache = cache;
+            if (staticFilesCache != null && staticFilesCache.load(path, resource) != null) {
+                return length;
+            }
+
+            long lastModified = lastModified(resource);
+            entityTags.get(resource, lastModified, length);
+            gzipVariants.get(resource, lastModified, length);
+            contentType(path, resource);
+            return length;
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Static file {} could not be preloaded: {}", path, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static boolean reserve(AtomicLong budget, long bytes) {
+        long remaining = budget.get();
+
+        while (remaining >= bytes) {
+            if (budget.compareAndSet(remaining, remaining - bytes)) {
+                return true;
+            }
+            remaining = budget.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return true if requests for paths that are not static files are passed on without probing the folders
+     */
+    synchronized boolean isIndexed() {
+        return indexes != null;
+    }
+
+    private void indexExternal() {
+        externalIndex = StaticFilesIndex.scanExternal(externalFolder);
+
+        if (externalIndex != null && !externalIndex.watch()) {
+            externalIndex = null;
+        }
+    }
+
+    private void publishIndexes() {
+        List<StaticFilesIndex> staticFilesIndexes = new ArrayList<>();
+
+        if (staticResourcesSet) {
+            if (classPathIndex == null) {
+                indexes = null;
+                return;
+            }
+            staticFilesIndexes.add(classPathIndex);
+        }
+
+        if (externalFolder != null) {
+            if (externalIndex == null) {
+                indexes = null;
+                return;
+            }
+            staticFilesIndexes.add(externalIndex);
+        }
+
+        indexes = staticFilesIndexes;
+    }
+
     public static StaticFilesConfiguration create() {
         return new StaticFilesConfiguration();
     }
 
     public void setExpireTimeSeconds(long expireTimeSeconds) {
         customHeaders.put("Cache-Control", "private, max-age=" + expireTimeSeconds);
-        customHeaders.put("Expires", new Date(System.currentTimeMillis() + (expireTimeSeconds * 1000)).toString());
+        // the Expires header is computed for every response
+        customHeaders.remove(EXPIRES);
+        this.expireTimeSeconds = expireTimeSeconds;
     }
 
     public void putCustomHeaders(Map<String, String> headers) {
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2011- Per Wendel
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package spark.staticfiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import spark.utils.ClassUtils;
+import spark.utils.StringUtils;
+
+/**
+ * Index of the request paths that can be served from a static files folder, e.g. '/css/style.css', '/pages' and
+ * '/pages/' if the folder has 'pages/index.html'. Requests for paths not in the index are not probed against the
+ * folder. The index may contain paths that are not served, the resource handler decides that.
+ * <p>
+ * A classpath folder is scanned once, its content does not change. An external folder can be watched, the index
+ * is then scanned again when files are created or deleted.
+ * <p>
+ * The content types of the indexed paths are resolved once, when first served.
+ *
+ * @author Per Wendel
+ */
+final class StaticFilesIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(StaticFilesIndex.class);
+
+    private static final String WELCOME_FILE = "index.html";
+    private static final long CHANGES_DELAY_MILLIS = 50;
+
+    private final String folder;
+    private volatile Scan scan;
+    private volatile WatchService watchService;
+
+    private final Map<String, MimeType.Resolved> contentTypes = new ConcurrentHashMap<>();
+
+    private StaticFilesIndex(String folder, Scan scan) {
+        this.folder = folder;
+        this.scan = scan;
+    }
+
+    /**
+     * Scans a folder in classpath, in all the directories and jars it is found in
+     *
+     * @param folder the folder in classpath
+     * @return the index or null if the folder cannot be scanned, e.g. it is in a jar nested in another jar
+     */
+    static StaticFilesIndex scanClassPath(String folder) {
+        String name = StringUtils.removeLeadingAndTrailingSlashesFrom(folder);
+        Scan scan = new Scan();
+
+        try {
+            Enumeration<URL> urls = ClassUtils.getDefaultClassLoader().getResources(name);
+
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+
+                if ("file".equals(url.getProtocol())) {
+                    scanDirectory(Paths.get(url.toURI()), scan);
+                } else if ("jar".equals(url.getProtocol())) {
+                    scanJar(url, scan);
+                } else {
+                    LOG.debug("Static files in {} are not indexed", url);
+                    return null;
+                }
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            LOG.debug("Static files folder {} could not be indexed: {}", folder, e.getMessage());
+            return null;
+        }
+        return new StaticFilesIndex(folder, scan.published());
+    }
+
+    /**
+     * Scans an external folder
+     *
+     * @param folder the external folder
+     * @return the index or null if the folder cannot be scanned
+     */
+    static StaticFilesIndex scanExternal(String folder) {
+        Scan scan = scanExternalFolder(folder);
+        return scan != null ? new StaticFilesIndex(folder, scan) : null;
+    }
+
+    /**
+     * Checks if a request path is in the index
+     *
+     * @param path the request path, e.g. '/css/style.css'
+     * @return true if a static file might be served for the path
+     */
+    boolean contains(String path) {
+        return scan.paths.contains(path);
+    }
+
+    /**
+     * @return the request paths of the files in the folder, without directories and welcome file paths
+     */
+    Set<String> files() {
+        return scan.files;
+    }
+
+    /**
+     * @return the folder
+     */
+    String folder() {
+        return folder;
+    }
+
+    /**
+     * Gets the content type of the file served for a request path, the welcome file for a directory
+     *
+     * @param path the request path, e.g. '/css/style.css'
+     * @return the content type or null if the path is not in the index
+     */
+    String contentType(String path) {
+        MimeType.Resolved contentType = contentTypes.get(path);
+
+        if (contentType == null || !contentType.isCurrent()) {
+            Set<String> paths = scan.paths;
+            if (!paths.contains(path)) {
+                return null;
+            }
+            contentType = MimeType.resolve(paths.contains(path + "/") ? WELCOME_FILE : filename(path));
+            contentTypes.put(path, contentType);
+        }
+        return contentType.mimeType();
+    }
+
+    /**
+     * @return the number of indexed paths
+     */
+    int size() {
+        return scan.paths.size();
+    }
+
+    /**
+     * Checks if the request path can be looked up in the index. Paths with dot segments, empty segments or
+     * backslashes are resolved by the resource handlers, which also protect against directory traversal.
+     *
+     * @param path the request path
+     * @return true if the path can be looked up
+     */
+    static boolean isIndexable(String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+        return path.indexOf('\\') < 0 && !path.contains("/.") && !path.contains("//");
+    }
+
+    /**
+     * Watches the external folder, the index is scanned again when files are created or deleted
+     *
+     * @return true if the folder is watched
+     */
+    synchronized boolean watch() {
+        if (watchService != null) {
+            return true;
+        }
+
+        try {
+            Path root = Paths.get(folder);
+            watchService = root.getFileSystem().newWatchService();
+            register(root);
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("Static files folder {} could not be watched: {}", folder, e.getMessage());
+            close();
+            return false;
+        }
+
+        // files might have been created since the folder was scanned
+        refresh();
+
+        Thread watcher = new Thread(this::watchForChanges, "SparkStaticFilesWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        LOG.info("Watching static files folder {} for changes", folder);
+        return true;
+    }
+
+    /**
+     * Stops watching the folder
+     */
+    synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.debug("Error when closing static files watcher", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void watchForChanges() {
+        WatchService service = watchService;
+
+        try {
+            while (true) {
+                WatchKey key = service.take();
+
+                // files are often copied in bulk, the changes are collected before scanning again
+                while (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    key = service.poll(CHANGES_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                // new directories must be registered as well, scanning everything again is the simplest
+                rescan();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            LOG.debug("Stopped watching static files folder {}", folder);
+        }
+    }
+
+    private synchronized void rescan() {
+        if (watchService == null) {
+            return;
+        }
+
+        refresh();
+
+        try {
+            register(Paths.get(folder));
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn("Static files folder {} could not be watched: {}", folder, e.getMessage());
+        }
+    }
+
+    private void refresh() {
+        Scan scanned = scanExternalFolder(folder);
+        if (scanned != null) {
+            scan = scanned;
+            contentTypes.clear();
+        }
+    }
+
+    private void register(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root, FileVisitOption.FOLLOW_LINKS)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (Files.isDirectory(path)) {
+                    path.register(watchService,
+                                  StandardWatchEventKinds.ENTRY_CREATE,
+                                  StandardWatchEventKinds.ENTRY_DELETE);
+                }
+            }
+        }
+    }
+
+    private static Scan scanExternalFolder(String folder) {
+        Scan scan = new Scan();
+
+        try {
+            scanDirectory(Paths.get(folder), scan);
+        } catch (IOException | UncheckedIOException e) {
+            LOG.debug("Static files folder {} could not be indexed: {}", folder, e.getMessage());
+            return null;
+        }
+        return scan.published();
+    }
+
+    private static void scanDirectory(Path root, Scan scan) throws IOException {
+        Path absoluteRoot = root.toAbsolutePath();
+
+        try (Stream<Path> files = Files.walk(absoluteRoot, FileVisitOption.FOLLOW_LINKS)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String relative = absoluteRoot.relativize(path).toString().replace('\\', '/');
+
+                if (!relative.isEmpty()) {
+                    scan.add("/" + relative, !Files.isDirectory(path));
+                }
+            }
+        }
+    }
+
+    private static void scanJar(URL url, Scan scan) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            throw new IOException("Not a jar: " + url);
+        }
+
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        jarConnection.setUseCaches(false);
+        String prefix = jarConnection.getEntryName() + "/";
+
+        try (JarFile jar = jarConnection.getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+
+                if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                    String relative = name.substring(prefix.length());
+                    boolean directory = relative.endsWith("/");
+                    scan.add("/" + (directory ? relative.substring(0, relative.length() - 1) : relative), !directory);
+                }
+            }
+        }
+    }
+
+    private static String filename(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash == path.length() - 1 ? WELCOME_FILE : path.substring(lastSlash + 1);
+    }
+
+    /**
+     * The paths found when scanning a folder
+     */
+    private static final class Scan {
+        private Set<String> paths = new HashSet<>();
+        private Set<String> files = new HashSet<>();
+
+        /**
+         * Adds the path of a file or directory, the directories it is in and the directory path ending with '/'
+         * for a welcome file.
+         */
+        private void add(String path, boolean file) {
+            paths.add(path);
+            if (file) {
+                files.add(path);
+            }
+
+            int lastSlash = path.lastIndexOf('/');
+            if (WELCOME_FILE.equals(path.substring(lastSlash + 1))) {
+                paths.add(path.substring(0, lastSlash + 1));
+            }
+
+            // jars do not always have entries for the directories
+            for (int slash = path.indexOf('/', 1); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                paths.add(path.substring(0, slash));
+            }
+        }
+
+        private Scan published() {
+            paths = Collections.unmodifiableSet(paths);
+            files = Collections.unmodifiableSet(files);
+            return this;
+        }
+    }
+
+}
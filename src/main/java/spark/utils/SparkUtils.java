@@ -42,6 +42,40 @@ public final class SparkUtils {
         return path;
     }
 
+    /**
+     * Splits a path into its segments, empty segments are skipped.
+     * Gives the same segments as {@link #convertRouteToList(String)} without the regex and list overhead.
+     *
+     * @param path the path
+     * @return the segments
+     */
+    public static String[] splitPath(String path) {
+        int length = path.length();
+        int count = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+                count++;
+            }
+        }
+
+        String[] segments = new String[count];
+        int index = 0;
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || path.charAt(i) == '/') {
+                if (start >= 0) {
+                    segments[index++] = path.substring(start, i);
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        return segments;
+    }
+
     public static boolean isParam(String routePart) {
         return routePart.startsWith(":");
     }
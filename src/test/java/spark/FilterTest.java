@@ -12,7 +12,9 @@ import spark.util.SparkTestUtil.UrlResponse;
 
 import static spark.Spark.awaitInitialization;
 import static spark.Spark.before;
+import static spark.Spark.get;
 import static spark.Spark.stop;
+import static spark.Spark.unmap;
 
 public class FilterTest {
     static SparkTestUtil testUtil;
@@ -27,6 +29,9 @@ public class FilterTest {
         testUtil = new SparkTestUtil(4567);
 
         before("/justfilter", (q, a) -> System.out.println("Filter matched"));
+
+        get("/lookedup", (q, a) -> "route");
+        before("/lookedup", (q, a) -> unmap("/lookedup", "get"));
         awaitInitialization();
     }
 
@@ -38,4 +43,15 @@ public class FilterTest {
         Assert.assertEquals(404, response.status);
     }
 
+    @Test
+    public void testBeforeFilter_whenRouteIsUnmapped_thenRouteLookedUpBeforeTheFiltersIsExecuted() throws Exception {
+        // the route is looked up before the before filters, which are resolved from it
+        UrlResponse response = testUtil.doMethod("GET", "/lookedup", null);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals("route", response.body);
+
+        response = testUtil.doMethod("GET", "/lookedup", null);
+        Assert.assertEquals(404, response.status);
+    }
+
 }
@@ -24,6 +24,7 @@ import org.junit.Test;
 import spark.examples.gzip.GzipClient;
 import spark.examples.gzip.GzipExample;
 import spark.util.SparkTestUtil;
+import spark.utils.IOUtils;
 
 import static org.junit.Assert.assertEquals;
 import static spark.Spark.awaitInitialization;
@@ -59,6 +60,26 @@ public class GzipTest {
         testGet();
     }
 
+    @Test
+    public void testStaticFileCssLayoutCss() throws Exception {
+        String decompressed = GzipClient.getAndDecompress("http://localhost:4567/css/layout.css");
+        Assert.assertTrue(decompressed.startsWith("body {"));
+        testGet();
+    }
+
+    @Test
+    public void testStaticFileJsScriptsJs_tooSmallToCompress() throws Exception {
+        String content = IOUtils.toString(GzipClient.get("http://localhost:4567/js/scripts.js"));
+        Assert.assertEquals(IOUtils.toString(GzipTest.class.getResourceAsStream("/public/js/scripts.js")), content);
+        testGet();
+    }
+
+    @Test
+    public void testStaticFileJsBundleJs_precompressedSiblingIsSent() throws Exception {
+        String decompressed = GzipClient.getAndDecompress("http://localhost:4567/js/bundle.js");
+        Assert.assertEquals(IOUtils.toString(GzipTest.class.getResourceAsStream("/public/js/bundle.js")), decompressed);
+    }
+
     /**
      * Used to verify that "normal" functionality works after static files mapping
      */
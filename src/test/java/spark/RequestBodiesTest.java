@@ -0,0 +1,67 @@
+package spark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RequestBodiesTest {
+
+    private static final byte[] BODY = bytes(RequestBodies.CHUNK_SIZE * 3 + 17);
+
+    @Test
+    public void testRead_whenContentLengthIsKnown_thenBodyIsRead() throws IOException {
+        assertArrayEquals(BODY, RequestBodies.read(new ByteArrayInputStream(BODY), BODY.length));
+    }
+
+    @Test
+    public void testRead_whenContentLengthIsUnknown_thenBodyIsRead() throws IOException {
+        assertArrayEquals(BODY, RequestBodies.read(new ByteArrayInputStream(BODY), -1));
+        assertArrayEquals(new byte[0], RequestBodies.read(new ByteArrayInputStream(new byte[0]), -1));
+    }
+
+    @Test
+    public void testRead_whenContentLengthIsWrong_thenWholeBodyIsRead() throws IOException {
+        assertArrayEquals(BODY, RequestBodies.read(new ByteArrayInputStream(BODY), 100));
+        assertArrayEquals(BODY, RequestBodies.read(new ByteArrayInputStream(BODY), BODY.length + 100));
+    }
+
+    @Test
+    public void testDecode_whenEncodingIsGiven_thenDecodedWithIt() {
+        String body = "{\"name\":\"Müller\"}";
+
+        assertEquals(body, RequestBodies.decode(body.getBytes(StandardCharsets.UTF_8), "UTF-8"));
+        assertEquals(body, RequestBodies.decode(body.getBytes(StandardCharsets.ISO_8859_1), "ISO-8859-1"));
+        assertEquals(body, RequestBodies.decode(body.getBytes(StandardCharsets.UTF_8), "UTF-8"));
+    }
+
+    @Test
+    public void testDecode_whenEncodingIsMissingOrUnsupported_thenDefaultIsUsed() {
+        byte[] bytes = "body".getBytes(Charset.defaultCharset());
+
+        assertEquals("body", RequestBodies.decode(bytes, null));
+        assertEquals("body", RequestBodies.decode(bytes, "no-such-encoding"));
+        assertEquals("body", RequestBodies.decode(bytes, "illegal name!"));
+        assertEquals("", RequestBodies.decode(new byte[0], null));
+    }
+
+    @Test
+    public void testDecode_whenInputIsMalformed_thenReplacedAsByString() {
+        byte[] bytes = {'a', (byte) 0xc3, 'b', (byte) 0xff};
+
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), RequestBodies.decode(bytes, "UTF-8"));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+}
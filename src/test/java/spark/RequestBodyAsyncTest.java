@@ -0,0 +1,96 @@
+package spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.utils.IOUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestBodyAsyncTest {
+
+    private static final int PORT = 4571;
+    private static final int MAX_SIZE = 1024;
+
+    private static Service service;
+
+    @BeforeClass
+    public static void setup() {
+        service = Service.ignite().port(PORT);
+        service.readRequestBodiesAsync();
+        service.maxRequestBodySize(MAX_SIZE);
+
+        service.before("/echo", (request, response) -> request.attribute("before", request.body().length()));
+        service.post("/echo", (request, response) ->
+                request.raw().getDispatcherType() + ":" + request.attribute("before") + ":" + request.body());
+        service.awaitInitialization();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testPost_whenContentLengthIsKnown_thenRouteRunsWithWholeBody() throws IOException {
+        HttpURLConnection connection = post("text/plain", "hello async body", false);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("ASYNC:16:hello async body", IOUtils.toString(connection.getInputStream()));
+    }
+
+    @Test
+    public void testPost_whenChunked_thenRouteRunsWithWholeBody() throws IOException {
+        String body = repeat('a', 500);
+        HttpURLConnection connection = post("text/plain", body, true);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("ASYNC:500:" + body, IOUtils.toString(connection.getInputStream()));
+    }
+
+    @Test
+    public void testPost_whenChunkedBodyIsLargerThanMaxSize_thenRejected() throws IOException {
+        HttpURLConnection connection = post("text/plain", repeat('a', MAX_SIZE + 1), true);
+
+        assertEquals(413, connection.getResponseCode());
+    }
+
+    @Test
+    public void testPost_whenMultipart_thenBodyIsNotReadAsynchronously() throws IOException {
+        HttpURLConnection connection = post("multipart/form-data; boundary=xyz", "--xyz--", false);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("REQUEST:7:--xyz--", IOUtils.toString(connection.getInputStream()));
+    }
+
+    private static HttpURLConnection post(String contentType, String body, boolean chunked) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + "/echo")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", contentType);
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(64);
+        }
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,110 @@
+package spark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import spark.multipart.MultipartConfiguration;
+import spark.multipart.MultipartPart;
+import spark.utils.IOUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RequestPartsTest {
+
+    private static final int PORT = 4572;
+    private static final String BOUNDARY = "spark-boundary";
+
+    private static final List<Path> files = new ArrayList<>();
+
+    private static Service service;
+
+    @BeforeClass
+    public static void setup() {
+        service = Service.ignite().port(PORT);
+
+        service.post("/upload", (request, response) -> {
+            StringBuilder names = new StringBuilder();
+            for (MultipartPart part : request.parts(MultipartConfiguration.create().maxFileSize(64))) {
+                names.append(part.name()).append('=');
+                if (part.isFile()) {
+                    files.add(part.file());
+                    names.append(part.filename()).append(':').append(part.size());
+                } else {
+                    names.append(part.value());
+                }
+                names.append(';');
+            }
+            return names.toString();
+        });
+        service.awaitInitialization();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void testParts_whenFieldsAndFiles_thenReadInOrderAndFilesDeletedAfterRequest() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "notes\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"notes.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "some notes\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+
+        HttpURLConnection connection = post(body);
+
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("title=notes;file=notes.txt:10;", IOUtils.toString(connection.getInputStream()));
+        assertEquals(1, files.size());
+        assertFalse(existsAfterRelease(files.get(0)));
+    }
+
+    @Test
+    public void testParts_whenFileIsLargerThanMaxSize_thenRejected() throws IOException {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"large.txt\"\r\n\r\n"
+                + new String(new char[65]).replace('\0', 'x') + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+
+        assertEquals(413, post(body).getResponseCode());
+    }
+
+    // the request is released once the response has been sent, which the client can see before it happens
+    private static boolean existsAfterRelease(Path file) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(file) && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        return Files.exists(file);
+    }
+
+    private static HttpURLConnection post(String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + "/upload")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+        connection.setDoOutput(true);
+
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+}
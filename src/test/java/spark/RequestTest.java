@@ -3,19 +3,23 @@ package spark;
 import org.junit.Before;
 import org.junit.Test;
 
+import spark.embeddedserver.ManagedRequest;
 import spark.routematch.RouteMatch;
 import spark.util.SparkTestUtil;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpSession;
 import java.util.*;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 import static spark.Spark.*;
 
 public class RequestTest {
@@ -102,6 +106,33 @@ public class RequestTest {
         assertEquals("Invalid name in query string", "Federico", name);
     }
 
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void maxBodySize_shouldHaltRequest_whenContentLengthIsLarger() {
+
+        when(servletRequest.getContentLengthLong()).thenReturn(1024L);
+
+        request.maxBodySize(512);
+    }
+
+    @Test
+    public void maxBodySize_shouldNotHaltRequest_whenContentLengthIsSmaller() {
+
+        when(servletRequest.getContentLengthLong()).thenReturn(256L);
+
+        request.maxBodySize(512);
+        verify(servletRequest).setAttribute("spark.maxBodySize", 512L);
+    }
+
+    @Test
+    public void maxBodySize_shouldLimitBodyOfManagedRequest_whenWrapped() {
+        HttpServletRequest managed = mock(HttpServletRequest.class, withSettings().extraInterfaces(ManagedRequest.class));
+        Request request = new Request(match, new HttpServletRequestWrapper(managed));
+
+        request.maxBodySize(512);
+        verify((ManagedRequest) managed).limitBody(512);
+        verify(managed, never()).setAttribute("spark.maxBodySize", 512L);
+    }
+
     @Test
     public void shouldBeAbleToGetTheServletPath() {
 
@@ -131,6 +162,21 @@ public class RequestTest {
         }
     }
 
+    @Test
+    public void paramAsLong_shouldReturnParamOfConstrainedRoute() {
+        RouteMatch constrained = new RouteMatch(null, "/users/:id{long}/:ID2{int}", "/users/42/-7", "text/html", null);
+        Request request = new Request(constrained, servletRequest);
+
+        assertEquals(42L, request.paramAsLong("id"));
+        assertEquals(-7, request.paramAsInt(":id2"));
+        assertEquals("42", request.params(":ID"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void paramAsLong_shouldThrowException_whenParamNotFound() {
+        new Request(matchWithParams, servletRequest).paramAsLong("id");
+    }
+
     public void shouldBeAbleToGetTheMatchedPathInBeforeFilter(Request q) {
         assertEquals("Should have returned the matched route from the before filter", BEFORE_MATCHED_ROUTE, q.matchedPath());
     }
@@ -7,11 +7,13 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.powermock.reflect.Whitebox;
 
 import spark.embeddedserver.EmbeddedServer;
 import spark.embeddedserver.EmbeddedServers;
+import spark.route.HttpMethod;
 import spark.route.Routes;
 import spark.ssl.SslStores;
 
@@ -304,6 +306,40 @@ public class ServiceTest {
         assertFalse(service.initialized);
     }
     
+    @Test
+    public void testHost_whenRoutesAreMappedByAnotherThread_thenTheyAreMappedForAllHosts() throws Exception {
+        Service service = Service.ignite();
+        Routes routes = Mockito.mock(Routes.class);
+        service.routes = routes;
+        service.initialized = true;
+
+        service.host("api.example.com", () -> {
+            service.get("/users", (q, a) -> "users");
+
+            Thread other = new Thread(() -> service.get("/health", (q, a) -> "ok"));
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Mockito.verify(routes).add(Mockito.eq(HttpMethod.get), Mockito.eq("api.example.com"),
+                                   Mockito.argThat(path("/users")));
+        Mockito.verify(routes).add(Mockito.eq(HttpMethod.get), Mockito.isNull(String.class),
+                                   Mockito.argThat(path("/health")));
+    }
+
+    private static ArgumentMatcher<RouteImpl> path(String path) {
+        return new ArgumentMatcher<RouteImpl>() {
+            @Override
+            public boolean matches(Object route) {
+                return route instanceof RouteImpl && path.equals(((RouteImpl) route).getPath());
+            }
+        };
+    }
+
     @WebSocket
     protected static class DummyWebSocketListener {
     }
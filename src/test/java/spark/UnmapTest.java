@@ -6,6 +6,7 @@ import org.junit.Test;
 import spark.util.SparkTestUtil;
 
 import static spark.Spark.awaitInitialization;
+import static spark.Spark.batch;
 import static spark.Spark.get;
 import static spark.Spark.unmap;
 
@@ -38,4 +39,51 @@ public class UnmapTest {
         response = testUtil.doMethod("GET", "/tobeunmapped", null);
         Assert.assertEquals(404, response.status);
     }
+
+    @Test
+    public void testBatch_swapsRoutesAtOnce() throws Exception {
+        get("/tobeswapped", (q, a) -> "v1");
+        awaitInitialization();
+
+        batch(() -> {
+            unmap("/tobeswapped");
+            get("/tobeswapped", (q, a) -> "v2");
+        });
+
+        SparkTestUtil.UrlResponse response = testUtil.doMethod("GET", "/tobeswapped", null);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals("v2", response.body);
+
+        unmap("/tobeswapped");
+    }
+
+    @Test
+    public void testBatch_whenRoutesAreMappedByAnotherThread_thenTheyAreNotPartOfTheBatch() throws Exception {
+        get("/thisthread", (q, a) -> "this");
+        awaitInitialization();
+        Thread[] other = new Thread[1];
+        Thread.State[] state = new Thread.State[1];
+
+        batch(() -> {
+            other[0] = new Thread(() -> get("/otherthread", (q, a) -> "other"));
+            other[0].start();
+
+            // the other thread waits for the batch to be applied rather than adding to it
+            long deadline = System.currentTimeMillis() + 5000;
+            while (other[0].getState() != Thread.State.BLOCKED
+                    && other[0].getState() != Thread.State.TERMINATED
+                    && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            state[0] = other[0].getState();
+        });
+        other[0].join();
+
+        Assert.assertEquals(Thread.State.BLOCKED, state[0]);
+        SparkTestUtil.UrlResponse response = testUtil.doMethod("GET", "/otherthread", null);
+        Assert.assertEquals("other", response.body);
+
+        unmap("/otherthread");
+        unmap("/thisthread");
+    }
 }
@@ -0,0 +1,215 @@
+package spark.embeddedserver.jetty;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import spark.RequestBodyTooLargeException;
+import spark.embeddedserver.RequestBodyConfiguration;
+import spark.utils.IOUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpRequestWrapperTest {
+
+    private static final String BODY = "{\"name\":\"spark\",\"description\":\"a micro framework\"}";
+
+    @Test
+    public void testGetInputStream_bodyCanBeReadAgain() throws IOException {
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request(BODY));
+
+        assertEquals(BODY, IOUtils.toString(wrapper.getInputStream()));
+        assertEquals(BODY, IOUtils.toString(wrapper.getInputStream()));
+        wrapper.release();
+    }
+
+    @Test
+    public void testGetInputStream_whenPartlyRead_thenReadAgainFromStart() throws IOException {
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request(BODY));
+
+        byte[] start = new byte[8];
+        assertEquals(8, wrapper.getInputStream().read(start));
+
+        ServletInputStream again = wrapper.getInputStream();
+        assertFalse(again.isFinished());
+        assertEquals(BODY, IOUtils.toString(again));
+        assertTrue(again.isFinished());
+    }
+
+    @Test
+    public void testGetInputStream_whenStreaming_thenBodyIsNotKept() throws IOException {
+        RequestBodyConfiguration configuration = RequestBodyConfiguration.create();
+        configuration.stream();
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request(BODY), configuration);
+
+        assertEquals(BODY, IOUtils.toString(wrapper.getInputStream()));
+        assertEquals("", IOUtils.toString(wrapper.getInputStream()));
+    }
+
+    @Test
+    public void testGetInputStream_whenBodyCrossesMaxSize_thenRejectedWhileReading() throws IOException {
+        RequestBodyConfiguration configuration = RequestBodyConfiguration.create();
+        configuration.setMaxSize(16);
+        HttpServletRequest request = request(BODY);
+        when(request.getContentLengthLong()).thenReturn(-1L);
+        when(request.getHeader("Transfer-Encoding")).thenReturn("chunked");
+
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request, configuration);
+        try {
+            IOUtils.toString(wrapper.getInputStream());
+            fail("body larger than max size was read");
+        } catch (RequestBodyTooLargeException e) {
+            assertEquals(413, e.statusCode());
+            assertEquals(16, e.maxSize());
+        }
+        assertEquals(1, configuration.getRejectedWhileReadingCount());
+        assertEquals(0, configuration.getRejectedByContentLengthCount());
+    }
+
+    @Test
+    public void testGetInputStream_whenBodyWithinMaxSize_thenRead() throws IOException {
+        RequestBodyConfiguration configuration = RequestBodyConfiguration.create();
+        configuration.setMaxSize(BODY.length());
+
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request(BODY), configuration);
+
+        assertEquals(BODY, IOUtils.toString(wrapper.getInputStream()));
+        assertEquals(BODY, IOUtils.toString(wrapper.getInputStream()));
+        assertEquals(0, configuration.getRejectedWhileReadingCount());
+    }
+
+    @Test(expected = RequestBodyTooLargeException.class)
+    public void testLimitBody_whenContentLengthLarger_thenRejectedBeforeReading() throws IOException {
+        RequestBodyConfiguration configuration = RequestBodyConfiguration.create();
+        HttpServletRequest request = request(BODY);
+
+        try {
+            new HttpRequestWrapper(request, configuration).limitBody(16);
+        } finally {
+            assertEquals(1, configuration.getRejectedByContentLengthCount());
+            assertEquals(BODY.length(), request.getInputStream().available());
+        }
+    }
+
+    @Test
+    public void testLimitBody_whenLimitIsRaised_thenServiceLimitIsKept() throws IOException {
+        RequestBodyConfiguration configuration = RequestBodyConfiguration.create();
+        configuration.setMaxSize(16);
+        HttpServletRequest request = request(BODY);
+        when(request.getContentLengthLong()).thenReturn(-1L);
+
+        HttpRequestWrapper wrapper = new HttpRequestWrapper(request, configuration);
+        wrapper.limitBody(1024);
+        try {
+            IOUtils.toString(wrapper.getInputStream());
+            fail("body larger than max size was read");
+        } catch (RequestBodyTooLargeException e) {
+            assertEquals(16, e.maxSize());
+        }
+    }
+
+    @Test
+    public void testBufferedBody_whenAboveMemoryThreshold_thenSpilledToFile() throws IOException {
+        BufferedBody body = new BufferedBody(servletInputStream(BODY), 16, BODY.length());
+
+        assertEquals(BODY, IOUtils.toString(body.recording()));
+        assertTrue(body.isSpilled());
+        assertEquals(BODY.length(), body.size());
+        assertEquals(BODY, IOUtils.toString(body.replay()));
+
+        body.release();
+        assertFalse(body.isSpilled());
+    }
+
+    @Test
+    public void testBufferedBody_whenSpilled_thenFileIsReadableByOwnerOnly() throws IOException {
+        BufferedBody body = new BufferedBody(servletInputStream(BODY), 16, BODY.length());
+        IOUtils.toString(body.recording());
+        Path file = body.file();
+        try {
+            assumeTrue(file.getFileSystem().supportedFileAttributeViews().contains("posix"));
+            assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+        } finally {
+            body.release();
+        }
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testBufferedBody_whenReleased_thenReplaysAreClosed() throws IOException {
+        BufferedBody body = new BufferedBody(servletInputStream(BODY), 16, BODY.length());
+        IOUtils.toString(body.recording());
+        ServletInputStream replay = body.replay();
+
+        body.release();
+        try {
+            replay.read();
+            fail("replay of a released body was read");
+        } catch (IOException e) {
+            // closed
+        }
+    }
+
+    @Test
+    public void testBufferedBody_whenBelowMemoryThreshold_thenKeptInMemory() throws IOException {
+        BufferedBody body = new BufferedBody(servletInputStream(BODY), 1024, -1);
+
+        assertEquals(BODY, IOUtils.toString(body.replay()));
+        assertFalse(body.isSpilled());
+        assertEquals(BODY, IOUtils.toString(body.replay()));
+    }
+
+    private static HttpServletRequest request(String body) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        ServletInputStream inputStream = servletInputStream(body);
+        when(request.getInputStream()).thenReturn(inputStream);
+        when(request.getContentLengthLong()).thenReturn((long) body.length());
+        return request;
+    }
+
+    private static ServletInputStream servletInputStream(String body) {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return bytes.read();
+            }
+
+            @Override
+            public int available() {
+                return bytes.available();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return bytes.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,30 @@
+package spark.http.matching;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UnmappedRequestLogTest {
+
+    @Test
+    public void testRecord_logsAtMostOncePerInterval() {
+        UnmappedRequestLog log = new UnmappedRequestLog(60000);
+
+        assertTrue("The first request should be logged", log.record("/.env", "*/*"));
+        assertFalse(log.record("/wp-admin", "*/*"));
+        assertFalse(log.record("/wp-admin", "*/*"));
+
+        assertEquals(3, log.count());
+    }
+
+    @Test
+    public void testRecord_logsAgainAfterInterval() {
+        UnmappedRequestLog log = new UnmappedRequestLog(0);
+
+        assertTrue(log.record("/.env", "*/*"));
+        assertTrue(log.record("/.env", "*/*"));
+    }
+
+}
@@ -0,0 +1,307 @@
+package spark.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.RequestBodyTooLargeException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MultipartPartsTest {
+
+    private static final String BOUNDARY = "----spark7MA4YWxkTrZu0gW";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+    private Path directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("multipart-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testIterator_partsAreReadInOrder() throws IOException {
+        byte[] body = new Body()
+                .preamble("ignored preamble")
+                .field("title", "Vacation")
+                .file("photo", "beach.jpg", "image/jpeg", "jpeg bytes".getBytes(StandardCharsets.UTF_8))
+                .field("comment", "Grüße")
+                .close("ignored epilogue");
+
+        List<MultipartPart> parts = new ArrayList<>();
+        try (MultipartParts multipartParts = parts(body, configuration())) {
+            multipartParts.forEach(parts::add);
+
+            assertEquals(3, parts.size());
+            assertEquals("title", parts.get(0).name());
+            assertEquals("Vacation", parts.get(0).value());
+            assertFalse(parts.get(0).isFile());
+            assertNull(parts.get(0).file());
+
+            assertEquals("photo", parts.get(1).name());
+            assertEquals("beach.jpg", parts.get(1).filename());
+            assertEquals("image/jpeg", parts.get(1).contentType());
+            assertEquals(10, parts.get(1).size());
+            assertEquals("jpeg bytes", new String(Files.readAllBytes(parts.get(1).file()), StandardCharsets.UTF_8));
+
+            assertEquals("Grüße", parts.get(2).value());
+        }
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    public void testNextPart_whenReadInSmallPieces_thenContentIsIntact() throws IOException {
+        byte[] content = new byte[MultipartReader.BUFFER_SIZE * 3 + 5];
+        new Random(42).nextBytes(content);
+        // looks like the start of a delimiter, without being one
+        byte[] almost = ("\r\n--" + BOUNDARY.substring(0, 10)).getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(almost, 0, content, MultipartReader.BUFFER_SIZE - 3, almost.length);
+
+        byte[] body = new Body().file("data", "data.bin", "application/octet-stream", content).close(null);
+
+        try (MultipartParts parts = MultipartParts.of(CONTENT_TYPE, new TrickleInputStream(body), null,
+                                                      configuration())) {
+            MultipartPart part = parts.nextPart();
+            assertArrayEquals(content, part.bytes());
+            assertNull(parts.nextPart());
+        }
+    }
+
+    @Test
+    public void testNextPart_whenFieldIsLargerThanMaxSize_thenRejected() throws IOException {
+        byte[] body = new Body().field("comment", "0123456789").close(null);
+
+        try (MultipartParts parts = parts(body, configuration().maxFieldSize(9))) {
+            parts.nextPart();
+            fail("field larger than max size was read");
+        } catch (RequestBodyTooLargeException e) {
+            assertEquals(413, e.statusCode());
+            assertEquals(9, e.maxSize());
+        }
+    }
+
+    @Test
+    public void testNextPart_whenFileIsLargerThanMaxSize_thenRejectedAndDeleted() throws IOException {
+        byte[] body = new Body()
+                .file("first", "first.txt", "text/plain", new byte[100])
+                .file("second", "second.txt", "text/plain", new byte[101])
+                .close(null);
+
+        try (MultipartParts parts = parts(body, configuration().maxFileSize(100))) {
+            assertEquals(100, parts.nextPart().size());
+            parts.nextPart();
+            fail("file larger than max size was read");
+        } catch (RequestBodyTooLargeException e) {
+            assertEquals(100, e.maxSize());
+        }
+        assertEquals(0, tempFiles());
+    }
+
+    @Test(expected = MultipartException.class)
+    public void testNextPart_whenMorePartsThanAllowed_thenRejected() throws IOException {
+        byte[] body = new Body().field("a", "1").field("b", "2").close(null);
+
+        try (MultipartParts parts = parts(body, configuration().maxParts(1))) {
+            parts.forEach(part -> { });
+        }
+    }
+
+    @Test(expected = MultipartException.class)
+    public void testNextPart_whenCloseDelimiterIsMissing_thenMalformed() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"a\"\r\n\r\nvalue")
+                .getBytes(StandardCharsets.UTF_8);
+
+        try (MultipartParts parts = parts(body, configuration())) {
+            parts.nextPart();
+        }
+    }
+
+    @Test(expected = MultipartException.class)
+    public void testOf_whenNotMultipart_thenRejected() {
+        MultipartParts.of("application/json", new ByteArrayInputStream(new byte[0]), null, configuration());
+    }
+
+    @Test(expected = MultipartException.class)
+    public void testOf_whenMultipartButNotFormData_thenRejected() {
+        MultipartParts.of("multipart/mixed; boundary=" + BOUNDARY, new ByteArrayInputStream(new byte[0]), null,
+                          configuration());
+    }
+
+    @Test
+    public void testOf_whenFormDataWithParameters_thenAccepted() throws IOException {
+        byte[] body = new Body().field("a", "1").close(null);
+
+        try (MultipartParts parts = MultipartParts.of(" Multipart/Form-Data ;charset=UTF-8; boundary=" + BOUNDARY,
+                                                      new ByteArrayInputStream(body), null, configuration())) {
+            assertEquals("1", parts.nextPart().value());
+        }
+    }
+
+    @Test
+    public void testSaveTo_fileIsMoved() throws IOException {
+        byte[] body = new Body().file("doc", "doc.txt", "text/plain", "saved".getBytes(StandardCharsets.UTF_8))
+                .close(null);
+        Path target = Files.createTempFile("multipart-saved", ".txt");
+
+        try (MultipartParts parts = parts(body, configuration())) {
+            MultipartPart part = parts.nextPart();
+            Path file = part.file();
+
+            assertEquals(target, part.saveTo(target));
+            assertFalse(Files.exists(file));
+            assertEquals("saved", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testCopy_targetIsReplacedAtOnce() throws IOException {
+        Path directory = Files.createTempDirectory("multipart-copy");
+        Path source = Files.write(Files.createTempFile("multipart-source", ".txt"),
+                                  "copied".getBytes(StandardCharsets.UTF_8));
+        Path target = Files.write(directory.resolve("target.txt"), "old".getBytes(StandardCharsets.UTF_8));
+
+        try {
+            MultipartPart.copy(source, target, Files.size(source));
+
+            assertEquals("copied", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            Files.delete(target);
+            Files.delete(directory);
+            Files.delete(source);
+        }
+    }
+
+    @Test
+    public void testParameter_quotedValues() {
+        String header = "form-data; name=\"a;b\"; filename=\"say \\\"hi\\\".txt\"; size=12";
+
+        assertEquals("a;b", MultipartPart.parameter(header, "name"));
+        assertEquals("say \"hi\".txt", MultipartPart.parameter(header, "filename"));
+        assertEquals("12", MultipartPart.parameter(header, "size"));
+        assertNull(MultipartPart.parameter(header, "missing"));
+    }
+
+    @Test
+    public void testParameter_whenFilenameBeforeName_thenNamesAreMatchedWhole() {
+        String header = "form-data; filename=\"a.txt\"; name=\"upload\"";
+
+        assertEquals("upload", MultipartPart.parameter(header, "name"));
+        assertEquals("a.txt", MultipartPart.parameter(header, "filename"));
+        assertNull(MultipartPart.parameter("form-data; filename=\"a.txt\"", "name"));
+    }
+
+    @Test
+    public void testParameter_whenParameterHasNoValue_thenFollowingParametersAreRead() {
+        String header = "form-data; inline; name=\"field\"; filename=\"C:\\docs\\a.txt\"";
+
+        assertEquals("", MultipartPart.parameter(header, "inline"));
+        assertEquals("field", MultipartPart.parameter(header, "name"));
+        assertEquals("C:\\docs\\a.txt", MultipartPart.parameter(header, "filename"));
+        assertEquals("", MultipartPart.parameter("form-data; name=\"a\"; inline", "inline"));
+    }
+
+    private long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private MultipartConfiguration configuration() {
+        return MultipartConfiguration.create().directory(directory);
+    }
+
+    private static MultipartParts parts(byte[] body, MultipartConfiguration configuration) {
+        return MultipartParts.of(CONTENT_TYPE, new ByteArrayInputStream(body), null, configuration);
+    }
+
+    private static final class Body {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private Body preamble(String preamble) {
+            write(preamble + "\r\n");
+            return this;
+        }
+
+        private Body field(String name, String value) {
+            write("--" + BOUNDARY + "\r\n");
+            write("Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n");
+            write(value + "\r\n");
+            return this;
+        }
+
+        private Body file(String name, String filename, String contentType, byte[] content) {
+            write("--" + BOUNDARY + "\r\n");
+            write("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n");
+            write("Content-Type: " + contentType + "\r\n\r\n");
+            bytes.write(content, 0, content.length);
+            write("\r\n");
+            return this;
+        }
+
+        private byte[] close(String epilogue) {
+            write("--" + BOUNDARY + "--\r\n");
+            if (epilogue != null) {
+                write(epilogue);
+            }
+            return bytes.toByteArray();
+        }
+
+        private void write(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            bytes.write(b, 0, b.length);
+        }
+    }
+
+    // returns a few bytes per read, as a slow connection does
+    private static final class TrickleInputStream extends InputStream {
+        private final ByteArrayInputStream bytes;
+        private final Random random = new Random(7);
+
+        private TrickleInputStream(byte[] bytes) {
+            this.bytes = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() {
+            return bytes.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return bytes.read(b, off, Math.min(len, 1 + random.nextInt(4096)));
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package spark.route;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import spark.utils.MimeParse;
+
+import static org.junit.Assert.assertEquals;
+
+public class ContentNegotiationCacheTest {
+
+    @Test
+    public void testBestMatch_sameResultAsMimeParse() {
+        ContentNegotiationCache cache = new ContentNegotiationCache();
+        List<String> acceptedTypes = Arrays.asList("application/json", "text/html", "*/*");
+
+        for (String header : Arrays.asList("text/html", "application/json;q=0.5, text/html", "image/png", "*/*")) {
+            assertEquals(header, MimeParse.bestMatch(new HashSet<>(acceptedTypes), header),
+                         cache.bestMatch(acceptedTypes, header));
+        }
+    }
+
+    @Test
+    public void testBestMatch_countsHitsAndMisses() {
+        ContentNegotiationCache cache = new ContentNegotiationCache();
+        List<String> acceptedTypes = Arrays.asList("application/json", "text/html");
+
+        cache.bestMatch(acceptedTypes, "text/html");
+        cache.bestMatch(Arrays.asList("application/json", "text/html"), "text/html");
+        cache.bestMatch(acceptedTypes, "application/json");
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.hitCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBestMatch_sizeIsBounded() {
+        ContentNegotiationCache cache = new ContentNegotiationCache(2);
+        List<String> acceptedTypes = Arrays.asList("text/html");
+
+        cache.bestMatch(acceptedTypes, "text/html");
+        cache.bestMatch(acceptedTypes, "text/plain");
+        cache.bestMatch(acceptedTypes, "*/*");
+
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testBestMatch_whenFull_thenUsedResultsAreKept() {
+        ContentNegotiationCache cache = new ContentNegotiationCache(2);
+        List<String> acceptedTypes = Arrays.asList("text/html");
+
+        cache.bestMatch(acceptedTypes, "text/html");
+        cache.bestMatch(acceptedTypes, "text/plain");
+        cache.bestMatch(acceptedTypes, "text/html");
+        cache.bestMatch(acceptedTypes, "*/*");
+        cache.bestMatch(acceptedTypes, "text/html");
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testBestMatch_whenHeaderIsTooLong_thenNotCached() {
+        ContentNegotiationCache cache = new ContentNegotiationCache();
+        StringBuilder header = new StringBuilder("text/html");
+        while (header.length() <= ContentNegotiationCache.MAX_HEADER_LENGTH) {
+            header.append(", application/x-type-").append(header.length());
+        }
+
+        assertEquals("text/html", cache.bestMatch(Arrays.asList("text/html"), header.toString()));
+        assertEquals("text/html", cache.bestMatch(Arrays.asList("text/html"), header.toString()));
+        assertEquals(0, cache.hitCount());
+        assertEquals(0, cache.size());
+    }
+
+}
@@ -0,0 +1,109 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import spark.utils.SparkUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RouteIndexTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/", "/test", "/test/", "/test/me", "/test/:id", "/test/:id/", "/test/*", "/test/*/me", "/test/:id/*",
+            "/*", "*", "/test/this/resource/*", "/foo*", "/a/b/c", "/a/:b/c", "/a/*/c/*", "/:x/:y", "/test/:ID/me",
+            SparkUtils.ALL_PATHS);
+
+    private static final List<String> PATHS = Arrays.asList(
+            "", "/", "//", "/test", "/test/", "/test/me", "/test/me/", "/test/other", "/test/5/me", "/test/5/me/",
+            "/test/this/resource/child/id", "/test/this/resource/", "/foo", "/foo*", "/foo*/bar", "/a/b/c", "/a/x/c",
+            "/a/x/c/d/e", "/a/b", "/x/y", "/x/y/", "/test//me", SparkUtils.ALL_PATHS);
+
+    @Test
+    public void testFind_sameResultAsLinearScan() {
+        for (HttpMethod httpMethod : Arrays.asList(HttpMethod.get, HttpMethod.before)) {
+            List<RouteEntry> entries = new ArrayList<>();
+            RouteIndex index = new RouteIndex();
+
+            for (String pattern : PATTERNS) {
+                for (HttpMethod entryMethod : Arrays.asList(HttpMethod.get, HttpMethod.post, HttpMethod.before)) {
+                    RouteEntry entry = new RouteEntry();
+                    entry.httpMethod = entryMethod;
+                    entry.path = pattern;
+                    entry.target = pattern;
+                    entry.order = entries.size();
+                    entries.add(entry);
+                    index.add(entry);
+                }
+            }
+
+            for (String path : PATHS) {
+                List<RouteEntry> expected = new ArrayList<>();
+                for (RouteEntry entry : entries) {
+                    if (entry.matches(httpMethod, path)) {
+                        expected.add(entry);
+                    }
+                }
+                assertEquals("Mismatch for " + httpMethod + " " + path, expected, index.find(httpMethod, SparkUtils.splitPath(path), path.endsWith("/")));
+            }
+        }
+    }
+
+    @Test
+    public void testFind_firstAddedFirst() {
+        RouteIndex index = new RouteIndex();
+
+        RouteEntry wildcard = new RouteEntry();
+        wildcard.httpMethod = HttpMethod.get;
+        wildcard.path = "/hello/*";
+        wildcard.order = 0;
+
+        RouteEntry param = new RouteEntry();
+        param.httpMethod = HttpMethod.get;
+        param.path = "/hello/:name";
+        param.order = 1;
+
+        RouteEntry literal = new RouteEntry();
+        literal.httpMethod = HttpMethod.get;
+        literal.path = "/hello/world";
+        literal.order = 2;
+
+        index.add(literal);
+        index.add(param);
+        index.add(wildcard);
+
+        List<RouteEntry> matches = index.find(HttpMethod.get, new String[] {"hello", "world"}, false);
+
+        assertEquals(3, matches.size());
+        assertTrue(matches.get(0) == wildcard);
+        assertTrue(matches.get(1) == param);
+        assertTrue(matches.get(2) == literal);
+    }
+
+    @Test
+    public void testFind_onlyEntriesOfTheHttpMethod() {
+        RouteIndex index = new RouteIndex();
+
+        RouteEntry get = new RouteEntry();
+        get.httpMethod = HttpMethod.get;
+        get.path = "/hello";
+
+        RouteEntry post = new RouteEntry();
+        post.httpMethod = HttpMethod.post;
+        post.path = "/hello";
+
+        index.add(get);
+        index.add(post);
+
+        String[] segments = new String[] {"hello"};
+
+        assertEquals(1, index.find(HttpMethod.get, segments, false).size());
+        assertTrue(index.find(HttpMethod.post, segments, false).get(0) == post);
+        assertTrue(index.find(HttpMethod.head, segments, false).isEmpty());
+    }
+
+}
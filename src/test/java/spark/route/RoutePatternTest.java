@@ -0,0 +1,139 @@
+package spark.route;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import spark.utils.SparkUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoutePatternTest {
+
+    @Test
+    public void testMatches_paramsAndLiterals() {
+        RoutePattern pattern = RoutePattern.compile("/users/:id/files");
+
+        assertTrue(matches(pattern, "/users/5/files"));
+        assertFalse(matches(pattern, "/users/5/files/"));
+        assertFalse(matches(pattern, "/users/5/other"));
+        assertFalse(matches(pattern, "/users/5"));
+    }
+
+    @Test
+    public void testMatches_wildcardTail() {
+        RoutePattern pattern = RoutePattern.compile("/files/*");
+
+        assertTrue(matches(pattern, "/files/a"));
+        assertTrue(matches(pattern, "/files/a/b/c"));
+        assertTrue("Trailing slash should match the wildcard", matches(pattern, "/files/"));
+        assertFalse(matches(pattern, "/files"));
+    }
+
+    @Test
+    public void testParams_lowerCasedNamesAndDecodedValues() {
+        RoutePattern pattern = RoutePattern.compile("/users/:userName/:Id");
+        String[] segments = SparkUtils.splitPath("/users/bob%20smith/5");
+
+        assertEquals("bob smith", pattern.params(segments).get(":username"));
+        assertEquals("5", pattern.params(segments).get(":id"));
+    }
+
+    @Test
+    public void testParams_noParams() {
+        RoutePattern pattern = RoutePattern.compile("/users");
+
+        assertEquals(Collections.emptyMap(), pattern.params(SparkUtils.splitPath("/users")));
+    }
+
+    @Test
+    public void testSplat_lastWildcardTakesRemainingSegments() {
+        RoutePattern pattern = RoutePattern.compile("/say/*/to/*");
+
+        assertEquals(Arrays.asList("hello", "my/dear/friend"),
+                     pattern.splat(SparkUtils.splitPath("/say/hello/to/my/dear/friend")));
+    }
+
+    @Test
+    public void testCovers() {
+        RoutePattern route = RoutePattern.compile("/api/users/:id");
+
+        assertTrue(RoutePattern.compile("/api/*").covers(route));
+        assertTrue(RoutePattern.compile("/api/users/:name").covers(route));
+        assertTrue(RoutePattern.compile("/*").covers(route));
+        assertFalse(RoutePattern.compile("/api/users/5").covers(route));
+        assertFalse(RoutePattern.compile("/api/users/:id/").covers(route));
+    }
+
+    @Test
+    public void testExcludes() {
+        RoutePattern route = RoutePattern.compile("/api/users/:id");
+
+        assertTrue(RoutePattern.compile("/admin/*").excludes(route));
+        assertTrue(RoutePattern.compile("/api/users").excludes(route));
+        assertFalse(RoutePattern.compile("/api/users/5").excludes(route));
+        assertFalse(RoutePattern.compile("/*/users/*").excludes(route));
+    }
+
+    @Test
+    public void testMatches_constrainedParams() {
+        RoutePattern pattern = RoutePattern.compile("/users/:id{int}/:ref{uuid}/:slug{[a-z-]+}");
+
+        assertTrue(matches(pattern, "/users/5/123e4567-e89b-12d3-a456-426614174000/the-slug"));
+        assertTrue(matches(pattern, "/users/-2147483648/123E4567-E89B-12D3-A456-426614174000/a"));
+        assertFalse(matches(pattern, "/users/2147483648/123e4567-e89b-12d3-a456-426614174000/a"));
+        assertFalse(matches(pattern, "/users/bob/123e4567-e89b-12d3-a456-426614174000/a"));
+        assertFalse(matches(pattern, "/users/5/123e4567-e89b-12d3-a456-42661417400/a"));
+        assertFalse(matches(pattern, "/users/5/123e4567-e89b-12d3-a456-426614174000/Slug"));
+    }
+
+    @Test
+    public void testConstraints_integersAreAcceptedAsParsed() {
+        String[] values = {"5", "+5", "007", "-0", "2147483647", "-2147483648", "2147483648", "-2147483649",
+                "+", "-", "", "1-", "5a", "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+                "00000000000000000000001", "\u0661\u0662"};
+        ParamConstraint intConstraint = ParamConstraint.parse("int");
+        ParamConstraint longConstraint = ParamConstraint.parse("long");
+
+        for (String value : values) {
+            assertEquals(value, parses(() -> Integer.parseInt(value)), intConstraint.test(value));
+            assertEquals(value, parses(() -> Long.parseLong(value)), longConstraint.test(value));
+        }
+    }
+
+    private static boolean parses(Runnable parse) {
+        try {
+            parse.run();
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testParam_nameWithoutConstraint() {
+        RoutePattern pattern = RoutePattern.compile("/users/:userId{long}");
+        String[] segments = SparkUtils.splitPath("/users/9223372036854775807");
+
+        assertEquals("9223372036854775807", pattern.param(segments, "userid"));
+        assertEquals("9223372036854775807", pattern.param(segments, ":userId"));
+        assertEquals(Collections.singletonMap(":userid", "9223372036854775807"), pattern.params(segments));
+        assertEquals(null, pattern.param(segments, "other"));
+    }
+
+    @Test
+    public void testCovers_constrainedParams() {
+        RoutePattern route = RoutePattern.compile("/api/users/:id");
+
+        assertFalse(RoutePattern.compile("/api/users/:id{int}").covers(route));
+        assertTrue(RoutePattern.compile("/api/users/:id").covers(RoutePattern.compile("/api/users/:id{int}")));
+    }
+
+    private static boolean matches(RoutePattern pattern, String path) {
+        return pattern.matches(SparkUtils.splitPath(path), path.endsWith("/"));
+    }
+
+}
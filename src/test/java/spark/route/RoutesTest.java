@@ -0,0 +1,257 @@
+package spark.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import spark.FilterImpl;
+import spark.Request;
+import spark.Response;
+import spark.RouteImpl;
+import spark.routematch.RouteMatch;
+import spark.utils.SparkUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RoutesTest {
+
+    private Routes routes;
+
+    @Before
+    public void setup() {
+        routes = Routes.create();
+
+        routes.add("get '/api/users/:id'", "*/*", "getUser");
+        routes.add("get '/api/*'", "*/*", "getApi");
+        routes.add("before '" + SparkUtils.ALL_PATHS + "'", "*/*", "beforeAll");
+        routes.add("before '/api/*'", "*/*", "beforeApi");
+        routes.add("before '/api/users/5'", "*/*", "beforeUser5");
+        routes.add("before '/admin/*'", "*/*", "beforeAdmin");
+        routes.add("after '/api/users/:id'", "application/json", "afterUserJson");
+    }
+
+    @Test
+    public void testFindFilters_sameAsFindMultiple() {
+        for (String path : Arrays.asList("/api/users/5", "/api/users/6", "/api/other", "/admin/x")) {
+            // no route is mapped for '/admin/x', the filters are then searched for in the index
+            RouteMatch routeMatch = routes.find(HttpMethod.get, path, "*/*");
+
+            for (HttpMethod filterType : Arrays.asList(HttpMethod.before, HttpMethod.after, HttpMethod.afterafter)) {
+                for (String acceptType : Arrays.asList(null, "text/html", "application/json")) {
+                    assertEquals(path + " " + filterType + " " + acceptType,
+                                 targets(routes.findMultiple(filterType, path, acceptType)),
+                                 targets(routes.findFilters(filterType, routeMatch, path, acceptType)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindFilters_whenFilterAdded_thenChainIsResolvedAgain() {
+        RouteMatch routeMatch = routes.find(HttpMethod.get, "/api/users/5", null);
+        assertEquals(Arrays.asList("beforeAll", "beforeApi", "beforeUser5"),
+                     targets(routes.findFilters(HttpMethod.before, routeMatch, "/api/users/5", null)));
+
+        routes.add("before '/api/users/:id'", "*/*", "beforeUsers");
+
+        assertEquals(Arrays.asList("beforeAll", "beforeApi", "beforeUser5", "beforeUsers"),
+                     targets(routes.findFilters(HttpMethod.before, routeMatch, "/api/users/5", null)));
+    }
+
+    @Test
+    public void testFind_staticPath() {
+        routes.add("get '/health'", "*/*", "health");
+        routes.add("get '/api/users/me'", "*/*", "getMe");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("health", routes.find(HttpMethod.get, "/health", null).getTarget());
+            // first mapped wins, also over a static path
+            assertEquals("getUser", routes.find(HttpMethod.get, "/api/users/me", null).getTarget());
+            assertNull(routes.find(HttpMethod.get, "/health/", null));
+            assertNull(routes.find(HttpMethod.post, "/health", null));
+        }
+    }
+
+    @Test
+    public void testFind_constrainedParamsArePrunedDuringMatching() {
+        routes.add("get '/items/:id{int}'", "*/*", "itemById");
+        routes.add("get '/items/:name'", "*/*", "itemByName");
+        routes.add("before '/items/:id{int}'", "*/*", "beforeItemById");
+
+        assertEquals("itemById", routes.find(HttpMethod.get, "/items/5", null).getTarget());
+        assertEquals("itemByName", routes.find(HttpMethod.get, "/items/five", null).getTarget());
+
+        RouteMatch byName = routes.find(HttpMethod.get, "/items/five", null);
+        assertEquals(Arrays.asList("beforeAll"),
+                     targets(routes.findFilters(HttpMethod.before, byName, "/items/five", null)));
+        assertTrue(routes.remove("/items/:id{int}", "get"));
+    }
+
+    @Test
+    public void testFind_routesMappedForHosts() {
+        routes.add("get '/api/users/me'", "*/*", "getMe");
+        routes.update(batch -> {
+            batch.add(HttpMethod.get, "api.example.com", RouteImpl.create("/status", (q, a) -> null));
+            batch.add(HttpMethod.get, "*.tenants.example.com", RouteImpl.create("/status", (q, a) -> null));
+            batch.add(HttpMethod.before, "API.example.com", new FilterImpl("/*", "*/*") {
+                @Override
+                public void handle(Request request, Response response) {
+                }
+            });
+        });
+
+        assertNull(routes.find(HttpMethod.get, "/status", null));
+        assertNull(routes.find(HttpMethod.get, "other.example.com", "/status", null));
+        assertNull(routes.find(HttpMethod.get, "tenants.example.com", "/status", null));
+
+        RouteMatch api = routes.find(HttpMethod.get, "Api.Example.com", "/status", null);
+        RouteMatch tenant = routes.find(HttpMethod.get, "a.b.tenants.example.com", "/status", null);
+        assertEquals("/status", api.getMatchUri());
+        assertTrue(api.getTarget() != tenant.getTarget());
+
+        // routes mapped for all hosts are also matched, first mapped wins
+        assertEquals("getUser", routes.find(HttpMethod.get, "api.example.com", "/api/users/me", null).getTarget());
+
+        assertEquals(2, routes.findFilters(HttpMethod.before, "api.example.com", api, "/status", null).size());
+        assertEquals(1, routes.findFilters(HttpMethod.before, "a.tenants.example.com", tenant, "/status", null).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd_whenInvalidHost_thenThrowsException() {
+        routes.add(HttpMethod.get, "api.*.com", RouteImpl.create("/status", (q, a) -> null));
+    }
+
+    @Test
+    public void testFind_unmatchedPathsAreCachedUntilRoutesChange() {
+        assertNull(routes.find(HttpMethod.get, "/.env", null));
+        assertNull(routes.find(HttpMethod.get, "/.env", null));
+        assertEquals(1, routes.unmatchedPaths().hitCount());
+
+        routes.add("get '/.env'", "*/*", "env");
+
+        assertEquals("env", routes.find(HttpMethod.get, "/.env", null).getTarget());
+        assertEquals(0, routes.unmatchedPaths().size());
+    }
+
+    @Test
+    public void testFind_unmatchedPathsOfHostsAreCounted() {
+        routes.add(HttpMethod.get, "api.example.com", RouteImpl.create("/status", (q, a) -> null));
+
+        assertNull(routes.find(HttpMethod.get, "api.example.com", "/.env", null));
+        assertNull(routes.find(HttpMethod.get, "api.example.com", "/.env", null));
+        assertNull(routes.find(HttpMethod.get, "/.env", null));
+
+        assertEquals(1, routes.unmatchedPaths().hitCount());
+        assertEquals(2, routes.unmatchedPaths().size());
+    }
+
+    @Test
+    public void testUpdate_changesArePublishedAtOnce() {
+        routes.update(batch -> {
+            batch.remove("/api/users/:id", "get");
+            batch.add("get '/api/users/:id'", "*/*", "getUserV2");
+
+            // not published until the batch is done
+            assertEquals("getUser", routes.find(HttpMethod.get, "/api/users/5", null).getTarget());
+        });
+
+        assertEquals("getUserV2", routes.find(HttpMethod.get, "/api/users/5", null).getTarget());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUpdate_whenBatchUsedAfterwards_thenThrowsException() {
+        Routes.Batch[] applied = new Routes.Batch[1];
+        routes.update(batch -> applied[0] = batch);
+
+        applied[0].add("get '/late'", "*/*", "late");
+    }
+
+    @Test
+    public void testFind_whileRoutesAreChanged() throws Exception {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                routes.add("get '/changing/" + i + "'", "*/*", "changing");
+                routes.remove("/changing/" + (i - 1), "get");
+            }
+        });
+        writer.start();
+
+        while (writer.isAlive()) {
+            assertEquals("getUser", routes.find(HttpMethod.get, "/api/users/5", "*/*").getTarget());
+            routes.findAll();
+        }
+        writer.join();
+
+        assertEquals(8, routes.findAll().size());
+    }
+
+    @Test
+    public void testFreeze_sameMatchesAsBeforeFreezing() {
+        routes.add("get '/api/users/me'", "application/json", "getMeJson");
+        routes.add("get '/api/users/me'", "text/html", "getMeHtml");
+        routes.add("post '/api/users'", "*/*", "postUser");
+        routes.add("after '/api/users/me'", "*/*", "afterMe");
+        routes.add(HttpMethod.get, "api.example.com", RouteImpl.create("/status", (q, a) -> null));
+        routes.add(HttpMethod.get, "*.example.com", RouteImpl.create("/api/users/me", (q, a) -> null));
+
+        List<String> hosts = Arrays.asList(null, "api.example.com", "www.example.com");
+        List<String> paths = Arrays.asList("/api/users/me", "/api/users/me/", "/api/users/5", "/api/users",
+                                           "/api/other", "/admin/x", "/");
+        List<HttpMethod> methods = Arrays.asList(HttpMethod.get, HttpMethod.post, HttpMethod.head,
+                                                 HttpMethod.before, HttpMethod.after);
+        List<String> acceptTypes = Arrays.asList(null, "text/html", "application/json", "image/png");
+
+        List<Object> before = new ArrayList<>();
+        List<Object> frozen = new ArrayList<>();
+
+        for (List<Object> results : Arrays.asList(before, frozen)) {
+            if (results == frozen) {
+                routes.freeze();
+            }
+            for (String host : hosts) {
+                for (String path : paths) {
+                    for (HttpMethod method : methods) {
+                        for (String acceptType : acceptTypes) {
+                            RouteMatch match = routes.find(method, host, path, acceptType);
+                            results.add(match != null ? match.getTarget() : null);
+                            results.add(targets(routes.findMultiple(method, host, path, acceptType)));
+                            results.add(targets(routes.findFilters(HttpMethod.before, host, match, path, acceptType)));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertTrue(routes.isFrozen());
+        assertEquals(before, frozen);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFreeze_whenRouteAdded_thenThrowsException() {
+        routes.freeze();
+        routes.add("get '/late'", "*/*", "late");
+    }
+
+    @Test
+    public void testClear_unfreezesRoutes() {
+        routes.freeze();
+        routes.clear();
+
+        routes.add("get '/late'", "*/*", "late");
+        assertEquals("late", routes.find(HttpMethod.get, "/late", null).getTarget());
+    }
+
+    private static List<Object> targets(List<RouteMatch> matches) {
+        List<Object> targets = new ArrayList<>();
+        for (RouteMatch match : matches) {
+            targets.add(match.getTarget());
+        }
+        return targets;
+    }
+
+}
@@ -0,0 +1,64 @@
+package spark.route;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UnmatchedPathsTest {
+
+    @Test
+    public void testAdd_isCachedPerHttpMethod() {
+        UnmatchedPaths unmatchedPaths = new UnmatchedPaths();
+        unmatchedPaths.add(HttpMethod.get, "/.env");
+        unmatchedPaths.add(HttpMethod.post, "/.env");
+
+        assertTrue(unmatchedPaths.contains(HttpMethod.get, "/.env"));
+        assertTrue(unmatchedPaths.contains(HttpMethod.post, "/.env"));
+        assertFalse(unmatchedPaths.contains(HttpMethod.put, "/.env"));
+        assertEquals(1, unmatchedPaths.size());
+        assertEquals(2, unmatchedPaths.hitCount());
+    }
+
+    @Test
+    public void testAdd_whenPathIsTooLong_thenNotCached() {
+        UnmatchedPaths unmatchedPaths = new UnmatchedPaths();
+        String path = "/" + new String(new char[UnmatchedPaths.MAX_PATH_LENGTH]).replace('\0', 'a');
+        unmatchedPaths.add(HttpMethod.get, path);
+
+        assertFalse(unmatchedPaths.contains(HttpMethod.get, path));
+        assertEquals(0, unmatchedPaths.size());
+    }
+
+    @Test
+    public void testAdd_whenBudgetExceeded_thenUnreferencedPathsAreEvicted() {
+        UnmatchedPaths unmatchedPaths = new UnmatchedPaths(1000);
+        for (int i = 0; i < 100; i++) {
+            unmatchedPaths.add(HttpMethod.get, "/probe/" + i);
+            unmatchedPaths.contains(HttpMethod.get, "/probe/0");
+        }
+
+        assertTrue(unmatchedPaths.bytes() <= 1000);
+        assertTrue(unmatchedPaths.size() > 1);
+        assertTrue(unmatchedPaths.contains(HttpMethod.get, "/probe/0"));
+        assertTrue(unmatchedPaths.contains(HttpMethod.get, "/probe/99"));
+        assertFalse(unmatchedPaths.contains(HttpMethod.get, "/probe/1"));
+    }
+
+    @Test
+    public void testForHost_sharesCounters() {
+        UnmatchedPaths unmatchedPaths = new UnmatchedPaths(1000);
+        UnmatchedPaths host = unmatchedPaths.forHost();
+        for (int i = 0; i < 100; i++) {
+            unmatchedPaths.add(HttpMethod.get, "/probe/" + i);
+        }
+        host.add(HttpMethod.get, "/probe/0");
+
+        assertTrue(host.contains(HttpMethod.get, "/probe/0"));
+        assertEquals(unmatchedPaths.size(), host.size());
+        assertEquals(1, unmatchedPaths.hitCount());
+        assertTrue(unmatchedPaths.bytes() <= 2000);
+    }
+
+}
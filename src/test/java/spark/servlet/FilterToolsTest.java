@@ -0,0 +1,107 @@
+package spark.servlet;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.Test;
+
+import spark.utils.IOUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilterToolsTest {
+
+    @Test
+    public void testIsRelativePath_whenRootContextAndFilterPath_thenTrue() {
+        HttpServletRequest request = request("", "/hello/world", "/hello/world");
+
+        assertTrue(FilterTools.isRelativePath(request, ""));
+        assertEquals("/hello/world", FilterTools.getRelativePath(request, ""));
+    }
+
+    @Test
+    public void testIsRelativePath_whenFilterPathOrContextPath_thenFalse() {
+        assertFalse(FilterTools.isRelativePath(request("", "/api/hello", "/api/hello"), "api/"));
+        assertFalse(FilterTools.isRelativePath(request("/app", "/app/hello", "/hello"), ""));
+    }
+
+    @Test
+    public void testIsRelativePath_whenPathMustBeDecodedOrDiffers_thenFalse() {
+        assertFalse(FilterTools.isRelativePath(request("", "/hello%20world", "/hello world"), ""));
+        assertFalse(FilterTools.isRelativePath(request("", "/a+b", "/a+b"), ""));
+        assertFalse(FilterTools.isRelativePath(request("", "//hello", "//hello"), ""));
+        assertFalse(FilterTools.isRelativePath(request("", "/hello", "/world"), ""));
+        assertFalse(FilterTools.isRelativePath(request("", "/hello", null), ""));
+    }
+
+    @Test
+    public void testIsRelativePath_whenServletPathAndPathInfo_thenTrue() {
+        assertTrue(FilterTools.isRelativePath(request("", "/hello", "", "/hello"), ""));
+        assertTrue(FilterTools.isRelativePath(request("", "/hello", "/hello", null), ""));
+        assertTrue(FilterTools.isRelativePath(request("", "/api/hello", "/api", "/hello"), ""));
+        assertFalse(FilterTools.isRelativePath(request("", "/api/hello", "/app", "/hello"), ""));
+    }
+
+    @Test
+    public void testIsRelativePath_whenMappedByServletContainer() throws Exception {
+        assertEquals("/hello/world true", mapped("/", "/hello/world"));
+        assertEquals("/hello/world true", mapped("/*", "/hello/world"));
+        assertEquals("/hello/world true", mapped("/hello/*", "/hello/world"));
+        assertEquals("/hello%20world false", mapped("/", "/hello%20world"));
+    }
+
+    // the request URI and whether it is the relative path, for a servlet with the mapping at the root context
+    private static String mapped(String mapping, String path) throws Exception {
+        ServletContextHandler context = new ServletContextHandler();
+        context.setContextPath("/");
+        context.addServlet(new ServletHolder(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.getWriter().print(request.getRequestURI() + " " + FilterTools.isRelativePath(request, ""));
+            }
+        }), mapping);
+
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        server.addConnector(connector);
+        server.setHandler(context);
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + connector.getLocalPort() + path);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            return IOUtils.toString(connection.getInputStream());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpServletRequest request(String contextPath, String requestURI, String pathInfo) {
+        return request(contextPath, requestURI, "", pathInfo);
+    }
+
+    private static HttpServletRequest request(String contextPath,
+                                              String requestURI,
+                                              String servletPath,
+                                              String pathInfo) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getServletPath()).thenReturn(servletPath);
+        when(request.getContextPath()).thenReturn(contextPath);
+        when(request.getRequestURI()).thenReturn(requestURI);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+
+}
@@ -2,6 +2,11 @@ package spark.servlet;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import spark.multipart.MultipartPart;
 
 import static spark.Spark.after;
 import static spark.Spark.before;
@@ -17,6 +22,9 @@ public class MyApp implements SparkApplication {
 
     static File tmpExternalFile;
 
+    // the temp files of the uploaded files, deleted once the request has been handled
+    static final List<Path> uploadedFiles = new CopyOnWriteArrayList<>();
+
     @Override
     public synchronized void init() {
         try {
@@ -54,6 +62,15 @@ public class MyApp implements SparkApplication {
             return "Body was: " + body;
         });
 
+        post("/upload", (request, response) -> {
+            for (MultipartPart part : request.parts()) {
+                if (part.isFile()) {
+                    uploadedFiles.add(part.file());
+                }
+            }
+            return "Uploaded: " + uploadedFiles.size();
+        });
+
         after("/hi", (request, response) -> {
             response.header("after", "foobar");
         });
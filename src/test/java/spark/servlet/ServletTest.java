@@ -1,5 +1,10 @@
 package spark.servlet;
 
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.jetty.server.Connector;
@@ -16,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import spark.Spark;
 import spark.util.SparkTestUtil;
 import spark.util.SparkTestUtil.UrlResponse;
+import spark.utils.IOUtils;
 
 public class ServletTest {
 
@@ -156,4 +162,26 @@ public class ServletTest {
         Assert.assertEquals(200, response.status);
         Assert.assertEquals("Content of external file", response.body);
     }
+
+    @Test
+    public void testParts_whenRunningFromServlet_thenTempFilesAreDeletedAfterRequest() throws Exception {
+        String boundary = "servlet-boundary";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"notes.txt\"\r\n\r\n"
+                + "some notes\r\n"
+                + "--" + boundary + "--\r\n";
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + SOMEPATH + "/upload")
+                .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setDoOutput(true);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals("Uploaded: 1", IOUtils.toString(connection.getInputStream()));
+        Assert.assertFalse(Files.exists(MyApp.uploadedFiles.get(0)));
+    }
 }
@@ -0,0 +1,78 @@
+package spark.staticfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParse_singleRanges() {
+        assertEquals(Collections.singletonList("0-499"), ranges("bytes=0-499", 1000));
+        assertEquals(Collections.singletonList("500-999"), ranges("bytes=500-", 1000));
+        assertEquals(Collections.singletonList("900-999"), ranges("bytes=-100", 1000));
+        assertEquals(Collections.singletonList("0-999"), ranges("bytes=-2000", 1000));
+        assertEquals(Collections.singletonList("990-999"), ranges("bytes=990-2000", 1000));
+    }
+
+    @Test
+    public void testParse_multipleRanges() {
+        assertEquals(Arrays.asList("0-0", "10-19", "999-999"), ranges("bytes=0-0, 10-19,-1", 1000));
+    }
+
+    @Test
+    public void testParse_rangesAreSortedAndCoalesced() {
+        assertEquals(Arrays.asList("0-19", "500-599"), ranges("bytes=500-599,10-19,0-9", 1000));
+        assertEquals(Collections.singletonList("0-29"), ranges("bytes=0-19,10-29", 1000));
+        assertEquals(Arrays.asList("0-9", "900-999"), ranges("bytes=-100,0-9,950-", 1000));
+    }
+
+    @Test
+    public void testParse_rangesAskingForMoreThanTheContentAreIgnored() {
+        assertNull(ByteRange.parse("bytes=0-999,0-999", 1000));
+        assertNull(ByteRange.parse("bytes=0-,-1", 1000));
+    }
+
+    @Test
+    public void testParse_unsatisfiableRangesAreLeftOut() {
+        assertEquals(Collections.emptyList(), ranges("bytes=1000-", 1000));
+        assertEquals(Collections.emptyList(), ranges("bytes=-0", 1000));
+        assertEquals(Collections.emptyList(), ranges("bytes=0-10", 0));
+        assertEquals(Collections.singletonList("0-9"), ranges("bytes=2000-3000,0-9", 1000));
+    }
+
+    @Test
+    public void testParse_invalidHeadersAreIgnored() {
+        assertNull(ByteRange.parse("items=0-10", 1000));
+        assertNull(ByteRange.parse("bytes=10-5", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+        assertNull(ByteRange.parse("bytes=a-5", 1000));
+        assertNull(ByteRange.parse("bytes=+1-5", 1000));
+        assertNull(ByteRange.parse("bytes=99999999999999999999-", 1000));
+        assertNull(ByteRange.parse(null, 1000));
+    }
+
+    @Test
+    public void testParse_tooManyRangesAreIgnored() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+            header.append(',').append(i).append('-').append(i);
+        }
+        assertNull(ByteRange.parse(header.toString(), 1000));
+    }
+
+    private static List<String> ranges(String header, long length) {
+        List<String> ranges = new ArrayList<>();
+        for (ByteRange range : ByteRange.parse(header, length)) {
+            ranges.add(range.start() + "-" + range.end());
+        }
+        return ranges;
+    }
+
+}
@@ -0,0 +1,181 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ClassPathResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EntityTagsTest {
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Test
+    public void testOf_sameTagForBytesAndStream() throws IOException {
+        byte[] content = "Content of css file".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(EntityTags.of(content), EntityTags.of(new ByteArrayInputStream(content)));
+        assertTrue(EntityTags.of(content).matches("\"[0-9a-f]{40}\""));
+    }
+
+    @Test
+    public void testGet_tagIsComputedOnce() throws IOException {
+        EntityTags entityTags = new EntityTags();
+        ClassPathResource resource = new ClassPathResource("public/css/style.css");
+
+        String etag = entityTags.get(resource, 1000, 19);
+        assertEquals(etag, entityTags.get(new ClassPathResource("public/css/style.css"), 1000, 19));
+        assertEquals(1, entityTags.size());
+    }
+
+    @Test
+    public void testGzip_tagOfCompressedVariantDiffers() {
+        assertEquals("\"a-gzip\"", EntityTags.gzip("\"a\""));
+        assertEquals("W/\"a-gzip\"", EntityTags.gzip("W/\"a\""));
+        assertEquals(null, EntityTags.gzip(null));
+    }
+
+    @Test
+    public void testGet_whenLargeFile_thenWeakTagWithoutReadingIt() throws IOException {
+        EntityTags entityTags = new EntityTags();
+        AbstractFileResolvingResource resource = mock(AbstractFileResolvingResource.class);
+
+        String etag = entityTags.get(resource, 0x1000, FileChannelSender.LARGE_FILE_SIZE);
+
+        assertEquals("W/\"100000-1000\"", etag);
+        assertTrue(EntityTags.isWeak(etag));
+        verify(resource, never()).getInputStream();
+        assertEquals(0, entityTags.size());
+    }
+
+    @Test
+    public void testMatches_whenWeakTag_thenWeakComparison() {
+        assertTrue(EntityTags.matches("W/\"a\"", "W/\"a\""));
+        assertTrue(EntityTags.matches("\"a\"", "W/\"a\""));
+        assertFalse(EntityTags.matches("W/\"b\"", "W/\"a\""));
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(EntityTags.matches("\"a\"", "\"a\""));
+        assertTrue(EntityTags.matches("\"b\", W/\"a\"", "\"a\""));
+        assertTrue(EntityTags.matches("*", "\"a\""));
+        assertFalse(EntityTags.matches("\"b\"", "\"a\""));
+        assertFalse(EntityTags.matches("a", "\"a\""));
+    }
+
+    @Test
+    public void testConsume_whenIfNoneMatchMatches_thenNotModified() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, null, -1);
+
+            ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+            verify(response).setHeader(eq("ETag"), etag.capture());
+            verify(response).setDateHeader(eq("Last-Modified"), anyLong());
+            verify(response, never()).setStatus(304);
+            assertEquals("Content of css file", body.toString("UTF-8"));
+
+            body.reset();
+            response = consume(configuration, "\"other\", " + etag.getValue(), -1);
+
+            verify(response).setStatus(304);
+            assertEquals(0, body.size());
+        }
+    }
+
+    @Test
+    public void testConsume_whenNotModifiedSince_thenNotModified() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, null, System.currentTimeMillis());
+
+            verify(response).setStatus(304);
+            assertEquals(0, body.size());
+
+            // If-None-Match is checked instead
+            response = consume(configuration, "\"other\"", System.currentTimeMillis());
+
+            verify(response, never()).setStatus(304);
+        }
+    }
+
+    @Test
+    public void testConsume_expiresIsSetForEveryResponse() throws IOException {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.setExpireTimeSeconds(600);
+
+        long before = System.currentTimeMillis();
+        HttpServletResponse response = consume(configuration, null, -1);
+
+        ArgumentCaptor<Long> expires = ArgumentCaptor.forClass(Long.class);
+        verify(response).setDateHeader(eq("Expires"), expires.capture());
+        verify(response).setHeader("Cache-Control", "private, max-age=600");
+        assertTrue(expires.getValue() >= before + 600 * 1000);
+    }
+
+    private static StaticFilesConfiguration[] configurations() {
+        StaticFilesConfiguration streamed = StaticFilesConfiguration.create();
+        streamed.configure("/public");
+
+        StaticFilesConfiguration cached = StaticFilesConfiguration.create();
+        cached.configure("/public");
+        cached.enableCache(1024 * 1024);
+
+        return new StaticFilesConfiguration[] {streamed, cached};
+    }
+
+    private HttpServletResponse consume(StaticFilesConfiguration configuration,
+                                        String ifNoneMatch,
+                                        long ifModifiedSince) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/css/style.css");
+        when(request.getHeader("If-None-Match")).thenReturn(ifNoneMatch);
+        when(request.getDateHeader("If-Modified-Since")).thenReturn(ifModifiedSince);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.emptyEnumeration());
+
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+
+        assertTrue(configuration.consume(request, response));
+        return response;
+    }
+
+}
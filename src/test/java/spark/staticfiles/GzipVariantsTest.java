@@ -0,0 +1,128 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spark.resource.AbstractFileResolvingResource;
+import spark.resource.ClassPathResource;
+import spark.resource.ExternalResource;
+import spark.utils.IOUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GzipVariantsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testIsCompressible() {
+        assertTrue(GzipVariants.isCompressible("text/css", GzipVariants.MIN_SIZE));
+        assertFalse(GzipVariants.isCompressible("text/css", GzipVariants.MIN_SIZE - 1));
+        assertFalse(GzipVariants.isCompressible("text/css", FileChannelSender.LARGE_FILE_SIZE));
+        assertFalse(GzipVariants.isCompressible("image/png", 4096));
+        assertFalse(GzipVariants.isCompressible("image/jpeg", 4096));
+        assertFalse(GzipVariants.isCompressible("application/zip,application/x-compressed-zip", 4096));
+        assertFalse(GzipVariants.isCompressible("application/x-compressed-zip", 4096));
+        assertFalse(GzipVariants.isCompressible("video/avi", 4096));
+        assertFalse(GzipVariants.isCompressible("application/font-woff2", 4096));
+    }
+
+    @Test
+    public void testSibling_classPath() {
+        AbstractFileResolvingResource sibling = GzipVariants.sibling(new ClassPathResource("public/js/bundle.js"), 0);
+
+        assertNotNull(sibling);
+        assertEquals("bundle.js.gz", sibling.getFilename());
+        assertNull(GzipVariants.sibling(new ClassPathResource("public/css/layout.css"), 0));
+    }
+
+    @Test
+    public void testSibling_whenExternalSiblingIsOlder_thenNull() throws IOException {
+        File file = temporaryFolder.newFile("app.js");
+        File gz = temporaryFolder.newFile("app.js.gz");
+        assertTrue(gz.setLastModified(file.lastModified() - 10000));
+
+        assertNull(GzipVariants.sibling(new ExternalResource(file.getPath()), file.lastModified()));
+
+        assertTrue(gz.setLastModified(file.lastModified() + 10000));
+        assertNotNull(GzipVariants.sibling(new ExternalResource(file.getPath()), file.lastModified()));
+    }
+
+    @Test
+    public void testGet_contentIsCompressedOnce() throws IOException {
+        GzipVariants gzipVariants = new GzipVariants();
+        ClassPathResource resource = new ClassPathResource("public/css/layout.css");
+        long length = resource.contentLength();
+
+        GzipVariants.Variant variant = gzipVariants.get(resource, 1000, length);
+
+        assertNotNull(variant.content());
+        assertSame(variant, gzipVariants.get(new ClassPathResource("public/css/layout.css"), 1000, length));
+        assertEquals(variant.content().length, gzipVariants.bytes());
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            assertArrayEquals(IOUtils.toByteArray(inputStream), gunzip(variant.content()));
+        }
+    }
+
+    @Test
+    public void testGet_whenSibling_thenSiblingIsUsed() throws IOException {
+        GzipVariants gzipVariants = new GzipVariants();
+        ClassPathResource resource = new ClassPathResource("public/js/bundle.js");
+
+        GzipVariants.Variant variant = gzipVariants.get(resource, 1000, resource.contentLength());
+
+        assertNotNull(variant.sibling());
+        assertNull(variant.content());
+        assertEquals(0, gzipVariants.bytes());
+    }
+
+    @Test
+    public void testGet_whenNotCompressible_thenNone() throws IOException {
+        GzipVariants gzipVariants = new GzipVariants();
+
+        assertSame(GzipVariants.NONE, gzipVariants.get(new ClassPathResource("public/js/scripts.js"), 1000, 33));
+        assertSame(GzipVariants.NONE, gzipVariants.get(new ClassPathResource("public/img/sparklogo.png"), 1000, 4096));
+    }
+
+    @Test
+    public void testGet_whenOverBudget_thenVariantsAreEvicted() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(Integer.toHexString(i * 7919));
+        }
+
+        GzipVariants gzipVariants = new GzipVariants(16384);
+        for (int i = 0; i < 10; i++) {
+            File file = new File(folder, "file" + i + ".txt");
+            Files.write(file.toPath(), (i + content.toString()).getBytes(StandardCharsets.UTF_8));
+            gzipVariants.get(new ExternalResource(file.getPath()), file.lastModified(), file.length());
+        }
+        assertTrue(gzipVariants.bytes() > 0);
+        assertTrue(gzipVariants.bytes() <= 16384);
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package spark.staticfiles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MimeTypeTest {
+
+    @Test
+    public void testExtension() {
+        assertEquals("css", MimeType.extension("style.css"));
+        assertEquals("gz", MimeType.extension("bundle.js.gz"));
+        assertEquals("", MimeType.extension("file."));
+        assertEquals("README", MimeType.extension("README"));
+    }
+
+    @Test
+    public void testGetMimeType() {
+        assertEquals("text/css", MimeType.getMimeType("style.css"));
+        assertEquals("application/x-gzip", MimeType.getMimeType("bundle.js.gz"));
+        assertEquals("application/octet-stream", MimeType.getMimeType("sparklogoPng"));
+        assertEquals("application/octet-stream", MimeType.getMimeType(""));
+    }
+
+    @Test
+    public void testRegister_whenResolvedBefore_thenNotCurrent() {
+        MimeType.Resolved resolved = MimeType.resolve("file.mimetest");
+        assertEquals("application/octet-stream", resolved.mimeType());
+        assertTrue(resolved.isCurrent());
+
+        MimeType.register("mimetest", "application/x-mime-test");
+
+        assertFalse(resolved.isCurrent());
+        assertEquals("application/x-mime-test", MimeType.resolve("file.mimetest").mimeType());
+    }
+
+}
@@ -0,0 +1,161 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PartialContentTest {
+
+    private static final String CSS = "Content of css file";
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Test
+    public void testConsume_singleRange() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, "bytes=11-13", null);
+
+            verify(response).setStatus(206);
+            verify(response).setHeader("Content-Range", "bytes 11-13/19");
+            verify(response).setHeader("Accept-Ranges", "bytes");
+            assertEquals("css", body.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testConsume_multipleRanges() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, "bytes=0-6,-4", null);
+
+            verify(response).setStatus(206);
+            verify(response).setHeader(eq("Content-Type"),
+                                       startsWith("multipart/byteranges; boundary="));
+            String multipart = body.toString("UTF-8");
+            assertTrue(multipart.contains("Content-Type: text/css\r\nContent-Range: bytes 0-6/19\r\n\r\nContent\r\n"));
+            assertTrue(multipart.contains("Content-Range: bytes 15-18/19\r\n\r\nfile\r\n--"));
+            assertTrue(multipart.endsWith("--\r\n"));
+        }
+    }
+
+    @Test
+    public void testConsume_unsatisfiableRange() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, "bytes=19-", null);
+
+            verify(response).setStatus(416);
+            verify(response).setHeader("Content-Range", "bytes */19");
+            assertEquals(0, body.size());
+        }
+    }
+
+    @Test
+    public void testConsume_whenIfRangeDoesNotMatch_thenWholeContentIsSent() throws IOException {
+        for (StaticFilesConfiguration configuration : configurations()) {
+            body.reset();
+            HttpServletResponse response = consume(configuration, "bytes=0-6", "\"outdated\"");
+
+            verify(response, never()).setStatus(anyInt());
+            assertEquals(CSS, body.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testConsume_whenIfRangeIsWeakTag_thenWholeContentIsSent() throws IOException {
+        Path folder = Files.createTempDirectory("partial-content");
+        Path file = folder.resolve("large.bin");
+        try {
+            Files.write(file, new byte[(int) FileChannelSender.LARGE_FILE_SIZE]);
+            StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+            configuration.configureExternal(folder.toString());
+
+            // a large file has a weak tag, which never matches the strong comparison of If-Range
+            String etag = EntityTags.weak(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getMethod()).thenReturn("GET");
+            when(request.getPathInfo()).thenReturn("/large.bin");
+            when(request.getHeader("Range")).thenReturn("bytes=0-9");
+            when(request.getHeader("If-Range")).thenReturn(etag);
+            when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.emptyEnumeration());
+            HttpServletResponse response = response();
+
+            assertTrue(configuration.consume(request, response));
+            verify(response).setHeader("ETag", etag);
+            verify(response, never()).setStatus(206);
+            assertEquals(FileChannelSender.LARGE_FILE_SIZE, body.size());
+        } finally {
+            Files.delete(file);
+            Files.delete(folder);
+        }
+    }
+
+    private static StaticFilesConfiguration[] configurations() {
+        StaticFilesConfiguration streamed = StaticFilesConfiguration.create();
+        streamed.configure("/public");
+
+        StaticFilesConfiguration cached = StaticFilesConfiguration.create();
+        cached.configure("/public");
+        cached.enableCache(1024 * 1024);
+
+        return new StaticFilesConfiguration[] {streamed, cached};
+    }
+
+    private HttpServletResponse consume(StaticFilesConfiguration configuration,
+                                        String range,
+                                        String ifRange) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn("/css/style.css");
+        when(request.getHeader("Range")).thenReturn(range);
+        when(request.getHeader("If-Range")).thenReturn(ifRange);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.emptyEnumeration());
+
+        HttpServletResponse response = response();
+
+        assertTrue(configuration.consume(request, response));
+        return response;
+    }
+
+    private HttpServletResponse response() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return response;
+    }
+
+}
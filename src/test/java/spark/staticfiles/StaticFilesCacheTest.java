@@ -0,0 +1,220 @@
+package spark.staticfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import spark.resource.ClassPathResource;
+import spark.resource.ExternalResource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StaticFilesCacheTest {
+
+    @Test
+    public void testGet_whenLoaded_thenServedFromCache() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(1024 * 1024);
+
+        assertNull(cache.get("/css/style.css"));
+        CachedStaticFile loaded = cache.load("/css/style.css", new ClassPathResource("public/css/style.css"));
+        CachedStaticFile cached = cache.get("/css/style.css");
+
+        assertTrue(loaded == cached);
+        assertEquals("Content of css file", new String(cached.content(), StandardCharsets.UTF_8));
+        assertEquals("style.css", cached.filename());
+        assertEquals(42, cached.etag().length());
+        assertEquals(cached.size(), cache.bytes());
+        assertEquals(0.5, cache.hitRatio(), 0.001);
+    }
+
+    @Test
+    public void testLoad_whenBudgetExceeded_thenLeastRecentlyServedIsEvicted() throws IOException {
+        File file = File.createTempFile("cached", ".txt");
+        try {
+            // small enough to be cached without a GZIP encoded copy
+            Files.write(file.toPath(), new byte[100]);
+            StaticFilesCache cache = new StaticFilesCache(400);
+
+            cache.load("/first.txt", new ExternalResource(file.getPath()));
+            cache.load("/second.txt", new ExternalResource(file.getPath()));
+            cache.load("/third.txt", new ExternalResource(file.getPath()));
+            cache.get("/first.txt");
+            cache.load("/fourth.txt", new ExternalResource(file.getPath()));
+            cache.load("/fifth.txt", new ExternalResource(file.getPath()));
+
+            assertNotNull(cache.get("/first.txt"));
+            assertNull(cache.get("/second.txt"));
+            assertEquals(1, cache.evictionCount());
+            assertTrue(cache.bytes() <= cache.maxBytes());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoad_whenLargerThanQuarterOfBudget_thenNotCached() throws IOException {
+        StaticFilesCache cache = new StaticFilesCache(40);
+
+        assertNull(cache.load("/page.html", new ClassPathResource("public/page.html")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGet_whenTooLargeToBeCached_thenCountedApartFromMisses() throws IOException {
+        // a quarter of the budget holds style.css but not page.html
+        StaticFilesCache cache = new StaticFilesCache(100);
+
+        assertNull(cache.get("/page.html"));
+        assertNull(cache.load("/page.html", new ClassPathResource("public/page.html")));
+        assertNull(cache.get("/page.html"));
+        assertNull(cache.get("/page.html"));
+
+        assertEquals(1, cache.missCount());
+        assertEquals(2, cache.uncacheableCount());
+
+        cache.load("/css/style.css", new ClassPathResource("public/css/style.css"));
+        cache.get("/css/style.css");
+        assertEquals(0.5, cache.hitRatio(), 0.001);
+    }
+
+    @Test
+    public void testGet_whenExternalFileChanged_thenNotServedFromCache() throws IOException {
+        File file = File.createTempFile("cached", ".txt");
+        try {
+            Files.write(file.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+            StaticFilesCache cache = new StaticFilesCache(1024 * 1024);
+            cache.load("/cached.txt", new ExternalResource(file.getPath()));
+
+            Files.write(file.toPath(), "second!".getBytes(StandardCharsets.UTF_8));
+
+            assertNull(cache.get("/cached.txt"));
+            assertEquals(0, cache.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testConsume_whenCacheEnabled_thenGzippedContentIsWritten() throws IOException {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.enableCache(1024 * 1024);
+
+        for (int i = 0; i < 2; i++) {
+            HttpServletRequest request = mock(HttpServletRequest.class);
+            when(request.getPathInfo()).thenReturn("/css/layout.css");
+            when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.enumeration(Collections.singleton("gzip")));
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            HttpServletResponse response = mock(HttpServletResponse.class);
+            when(response.getOutputStream()).thenReturn(outputStream(body));
+
+            assertTrue(configuration.consume(request, response));
+            verify(response).setHeader("Content-Type", "text/css");
+            verify(response).setHeader("Content-Encoding", "gzip");
+            assertEquals(body.size(), configuration.cache().get("/css/layout.css").gzipped().length);
+        }
+        assertEquals(1, configuration.cache().size());
+    }
+
+    @Test
+    public void testConsume_whenCacheEnabledAndFileIsSmall_thenContentIsWrittenAsItIs() throws IOException {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.enableCache(1024 * 1024);
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getPathInfo()).thenReturn("/js/scripts.js");
+        when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.enumeration(Collections.singleton("gzip")));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(outputStream(body));
+
+        assertTrue(configuration.consume(request, response));
+        verify(response, never()).setHeader("Content-Encoding", "gzip");
+        assertEquals("console.log(\"Hello JavaScript\");\n", body.toString());
+        assertNull(configuration.cache().get("/js/scripts.js").gzipped());
+    }
+
+    @Test
+    public void testConsume_whenCompressible_thenVaryAndGzipEntityTag() throws IOException {
+        StaticFilesConfiguration streamed = StaticFilesConfiguration.create();
+        streamed.configure("/public");
+        StaticFilesConfiguration cached = StaticFilesConfiguration.create();
+        cached.configure("/public");
+        cached.enableCache(1024 * 1024);
+
+        for (StaticFilesConfiguration configuration : new StaticFilesConfiguration[] {streamed, cached}) {
+            ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+            HttpServletResponse response = consume(configuration, "/css/layout.css", null);
+            verify(response).setHeader("Vary", "Accept-Encoding");
+            verify(response).setHeader(eq("ETag"), etag.capture());
+            verify(response, never()).setHeader("Content-Encoding", "gzip");
+
+            response = consume(configuration, "/css/layout.css", "gzip");
+            verify(response).setHeader("Vary", "Accept-Encoding");
+            verify(response).setHeader("ETag", EntityTags.gzip(etag.getValue()));
+            verify(response).setHeader("Content-Encoding", "gzip");
+
+            response = consume(configuration, "/js/scripts.js", "gzip");
+            verify(response, never()).setHeader(eq("Vary"), anyString());
+        }
+    }
+
+    private static HttpServletResponse consume(StaticFilesConfiguration configuration,
+                                               String path,
+                                               String acceptEncoding) throws IOException {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(acceptEncoding != null
+                ? Collections.enumeration(Collections.singleton(acceptEncoding))
+                : Collections.emptyEnumeration());
+
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(outputStream(new ByteArrayOutputStream()));
+
+        assertTrue(configuration.consume(request, response));
+        return response;
+    }
+
+    private static ServletOutputStream outputStream(ByteArrayOutputStream bytes) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,130 @@
+package spark.staticfiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StaticFilesIndexTest {
+
+    private Path folder;
+    private StaticFilesIndex index;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("static-files-index");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        Files.walk(folder).map(Path::toFile).sorted((a, b) -> b.compareTo(a)).forEach(File::delete);
+    }
+
+    @Test
+    public void testScanClassPath_filesDirectoriesAndWelcomeFiles() {
+        StaticFilesIndex classPath = StaticFilesIndex.scanClassPath("/public/");
+
+        assertTrue(classPath.contains("/css/style.css"));
+        assertTrue(classPath.contains("/page.html"));
+        assertTrue(classPath.contains("/pages"));
+        assertTrue(classPath.contains("/pages/"));
+        assertFalse(classPath.contains("/css/"));
+        assertFalse(classPath.contains("/"));
+        assertFalse(classPath.contains("/api/users"));
+    }
+
+    @Test
+    public void testScanClassPath_folderInJar() {
+        StaticFilesIndex jar = StaticFilesIndex.scanClassPath("org/junit");
+
+        assertTrue(jar.contains("/Test.class"));
+        assertTrue(jar.contains("/runner"));
+    }
+
+    @Test
+    public void testFiles_withoutDirectories() {
+        StaticFilesIndex classPath = StaticFilesIndex.scanClassPath("/public/");
+
+        assertTrue(classPath.files().contains("/css/style.css"));
+        assertTrue(classPath.files().contains("/pages/index.html"));
+        assertFalse(classPath.files().contains("/pages"));
+        assertFalse(classPath.files().contains("/pages/"));
+    }
+
+    @Test
+    public void testContentType() {
+        StaticFilesIndex classPath = StaticFilesIndex.scanClassPath("/public/");
+
+        assertEquals("text/css", classPath.contentType("/css/style.css"));
+        assertEquals("text/html", classPath.contentType("/pages/"));
+        assertEquals("text/html", classPath.contentType("/pages"));
+        assertEquals("application/octet-stream", classPath.contentType("/img/sparklogoPng"));
+        assertNull(classPath.contentType("/css/missing.css"));
+    }
+
+    @Test
+    public void testContentType_whenMimeTypeRegistered_thenResolvedAgain() throws IOException {
+        Files.write(folder.resolve("data.idxtest"), "data".getBytes(StandardCharsets.UTF_8));
+        index = StaticFilesIndex.scanExternal(folder.toString());
+
+        assertEquals("application/octet-stream", index.contentType("/data.idxtest"));
+        MimeType.register("idxtest", "application/x-index-test");
+        assertEquals("application/x-index-test", index.contentType("/data.idxtest"));
+    }
+
+    @Test
+    public void testIsIndexable() {
+        assertTrue(StaticFilesIndex.isIndexable("/css/style.css"));
+        assertTrue(StaticFilesIndex.isIndexable("/"));
+        assertFalse(StaticFilesIndex.isIndexable("/../secret"));
+        assertFalse(StaticFilesIndex.isIndexable("/..\\spark\\Spark.class"));
+        assertFalse(StaticFilesIndex.isIndexable("/css//style.css"));
+        assertFalse(StaticFilesIndex.isIndexable(null));
+    }
+
+    @Test
+    public void testWatch_whenFilesCreated_thenIndexIsUpdated() throws Exception {
+        index = StaticFilesIndex.scanExternal(folder.toString());
+        assertTrue(index.watch());
+        assertFalse(index.contains("/docs/index.html"));
+
+        Path docs = Files.createDirectory(folder.resolve("docs"));
+        Files.write(docs.resolve("index.html"), "docs".getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 200 && !index.contains("/docs/index.html"); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(index.contains("/docs/index.html"));
+        assertTrue(index.contains("/docs/"));
+    }
+
+    @Test
+    public void testConfiguration_externalFolderIsIndexedWhenWatched() {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        assertTrue(configuration.isIndexed());
+
+        configuration.configureExternal(folder.toString());
+        assertFalse(configuration.isIndexed());
+
+        configuration.watchExternal();
+        assertTrue(configuration.isIndexed());
+
+        configuration.clear();
+        assertFalse(configuration.isIndexed());
+    }
+
+}
@@ -50,10 +50,14 @@ public class StaticFilesTestExternal {
 
     private static final String CONTENT_OF_EXTERNAL_FILE = "Content of external file";
 
+    private static final String LARGE_FILE_NAME = "largeFile.txt";
+    private static final int LARGE_FILE_SIZE = 3000000;
+
     private static SparkTestUtil testUtil;
 
     private static File tmpExternalFile1;
     private static File tmpExternalFile2;
+    private static File tmpLargeFile;
     private static File folderOutsideStaticFiles;
 
     @AfterClass
@@ -63,6 +67,7 @@ public class StaticFilesTestExternal {
             LOGGER.debug("tearDown(). Deleting tmp files");
             tmpExternalFile1.delete();
             tmpExternalFile2.delete();
+            tmpLargeFile.delete();
             folderOutsideStaticFiles.delete();
         }
     }
@@ -81,6 +86,14 @@ public class StaticFilesTestExternal {
         writer.flush();
         writer.close();
 
+        tmpLargeFile = new File(directoryRoot, LARGE_FILE_NAME);
+
+        try (FileWriter largeFileWriter = new FileWriter(tmpLargeFile)) {
+            for (int i = 0; i < LARGE_FILE_SIZE / 10; i++) {
+                largeFileWriter.write("0123456789");
+            }
+        }
+
         File root = new File(directoryRoot);
 
         folderOutsideStaticFiles = new File(root.getAbsolutePath() + "/../dumpsterstuff");
@@ -116,6 +129,17 @@ public class StaticFilesTestExternal {
         testGet();
     }
 
+    @Test
+    public void testLargeExternalStaticFile() throws Exception {
+        SparkTestUtil.UrlResponse response = doGet("/" + LARGE_FILE_NAME);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals(String.valueOf(LARGE_FILE_SIZE), response.headers.get("Content-Length"));
+        Assert.assertEquals(LARGE_FILE_SIZE, response.body.length());
+        Assert.assertTrue(response.body.startsWith("0123456789"));
+
+        testGet();
+    }
+
     @Test
     public void testDirectoryTraversalProtectionExternal() throws Exception {
         String path = "/" + URLEncoder.encode("..\\..\\spark\\", "UTF-8") + "Spark.class";
@@ -0,0 +1,45 @@
+package spark.staticfiles;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class StaticFilesWarmUpTest {
+
+    @Test
+    public void testWarmUp_whenNotEnabled_thenNothingIsPreloaded() {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.enableCache(1024 * 1024);
+
+        assertEquals(0, configuration.warmUp());
+        assertEquals(0, configuration.cache().size());
+    }
+
+    @Test
+    public void testWarmUp_whenCacheEnabled_thenFilesAreCached() {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.enableCache(1024 * 1024);
+        configuration.enableWarmUp(1024 * 1024);
+
+        assertTrue(configuration.warmUp() > 0);
+        assertNotNull(configuration.cache().get("/css/layout.css"));
+        assertNotNull(configuration.cache().get("/pages/index.html"));
+        assertEquals(2, configuration.cache().hitCount());
+    }
+
+    @Test
+    public void testWarmUp_whenBudgetUsed_thenRemainingFilesAreNotPreloaded() {
+        StaticFilesConfiguration configuration = StaticFilesConfiguration.create();
+        configuration.configure("/public");
+        configuration.enableCache(1024 * 1024);
+        configuration.enableWarmUp(100);
+
+        assertTrue(configuration.warmUp() <= 100);
+        assertTrue(configuration.cache().bytes() < 1024);
+    }
+
+}
@@ -23,6 +23,17 @@ public class SparkUtilsTest {
 
     }
 
+    @Test
+    public void testSplitPath() throws Exception {
+
+        for (String path : Arrays.asList("/api/person/:id", "", "/", "//", "api//person/", "/a/b/c//")) {
+            assertThat("Should return the same segments as convertRouteToList for " + path,
+                    Arrays.asList(SparkUtils.splitPath(path)),
+                    is(SparkUtils.convertRouteToList(path)));
+        }
+
+    }
+
     @Test
     public void testIsParam_whenParameterFormattedAsParm() throws Exception {
 
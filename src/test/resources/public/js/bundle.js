@@ -0,0 +1,20 @@
+(function () {
+    'use strict';
+
+    function byId(id) {
+        return document.getElementById(id);
+    }
+
+    function show(id) {
+        byId(id).style.display = 'block';
+    }
+
+    function hide(id) {
+        byId(id).style.display = 'none';
+    }
+
+    window.addEventListener('load', function () {
+        show('content');
+        hide('loading');
+    });
+})();